@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -56,7 +57,7 @@ public class ConfigManager implements Configurable {
 
     // profile storage
     private ConfigProfile activeProfile;
-    private final Map<String, String> transientConfig = new HashMap<>();
+    private final Map<String, String> transientConfig = Collections.synchronizedMap(new HashMap<>());
 
     private ConfigManager() {
         // do nothing
@@ -190,6 +191,11 @@ public class ConfigManager implements Configurable {
     }
 
     public String getValue(String key, String defaultValue) {
+        // values of the game bound to the current thread, then of the process
+        GameContext context = GameContext.current();
+        if (context != null && context.getConfig().containsKey(key)) {
+            return context.getConfig().get(key);
+        }
         if (transientConfig.containsKey(key)) {
             return transientConfig.get(key);
         }
@@ -204,11 +210,31 @@ public class ConfigManager implements Configurable {
     }
 
     public void setValue(String key, String value) {
-        transientConfig.put(key, value);
+        if (value == null) {
+            getTransientConfig().remove(key);
+        } else {
+            getTransientConfig().put(key, value);
+        }
     }
 
     public void clearTransientConfig() {
-        transientConfig.clear();
+        getTransientConfig().clear();
+    }
+
+    private Map<String, String> getTransientConfig() {
+        GameContext context = GameContext.current();
+        return context != null ? context.getConfig() : transientConfig;
+    }
+
+    /**
+     * Runs a task with its own transient configuration (a new GameContext):
+     * values set by the task (e.g. the options of a loaded game) are only visible to the current thread,
+     * thus several games can run in parallel
+     * @param task to run
+     * @return result of the task
+     */
+    public <T> T callIsolated(Callable<T> task) throws Exception {
+        return new GameContext().call(task);
     }
 
     public String getActiveProfile() {
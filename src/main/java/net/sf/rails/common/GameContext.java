@@ -0,0 +1,126 @@
+package net.sf.rails.common;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GameContext holds the settings of one game: the game-related configuration
+ * (e.g. the options stored in a save file) and the locale of its texts.
+ * <p>
+ * The static lookups (Config, LocalText) use the context that is bound to the current thread
+ * and fall back to the process-wide settings if no context is bound or the context has no value.
+ * Game engines bind their context while they process a request (see GameEngine),
+ * thus games with different options or locales can run in parallel.
+ * The Swing client runs a single game and does not bind a context.
+ */
+public class GameContext {
+
+    private static final Logger log = LoggerFactory.getLogger(GameContext.class);
+
+    private static final ThreadLocal<GameContext> current = new ThreadLocal<>();
+
+    private final Map<String, String> config = new ConcurrentHashMap<>();
+
+    private volatile Locale locale;
+    private volatile ResourceBundle texts;
+    // resolved on first use (see MoneyFormatter)
+    private volatile String moneyFormat;
+
+    /**
+     * @return the context bound to the current thread, null if there is none
+     */
+    public static GameContext current() {
+        return current.get();
+    }
+
+    /**
+     * Runs a task with this context bound to the current thread
+     * (the previously bound context is restored afterwards)
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        GameContext previous = current.get();
+        current.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs a task that does not throw checked exceptions, see call
+     */
+    public <T> T get(Supplier<T> task) {
+        GameContext previous = current.get();
+        current.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the configuration values of the game, they override the values of the active profile
+     */
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    /**
+     * Sets the locale for the texts of the game
+     * @param locale null to use the locale of the process
+     */
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+        this.texts = null;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return texts in the locale of the game, null if the game has no locale of its own
+     */
+    ResourceBundle getTexts() {
+        if (locale == null) return null;
+        ResourceBundle bundle = texts;
+        if (bundle == null) {
+            try {
+                // bundles are cached by ResourceBundle, thus games with the same locale share them
+                bundle = ResourceBundle.getBundle("LocalisedText", locale);
+            } catch (MissingResourceException e) {
+                log.warn("Unable to locate LocalisedText resource for {}", locale, e);
+                return null;
+            }
+            texts = bundle;
+        }
+        return bundle;
+    }
+
+    String getMoneyFormat() {
+        return moneyFormat;
+    }
+
+    void setMoneyFormat(String moneyFormat) {
+        this.moneyFormat = moneyFormat;
+    }
+
+}
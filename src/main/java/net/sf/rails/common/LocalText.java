@@ -25,7 +25,7 @@ public class LocalText extends ResourceBundle {
 
     protected static Locale locale;
 
-    protected static ResourceBundle localisedText;
+    protected static volatile ResourceBundle localisedText;
 
     private static final Logger log = LoggerFactory.getLogger(LocalText.class);
 
@@ -54,35 +54,7 @@ public class LocalText extends ResourceBundle {
 
         /* Load the texts */
         if (localisedText == null) {
-            /*
-             * Check what locale has been configured, if any. If not, we use the
-             * default assigned above.
-             */
-            String item;
-            if (Util.hasValue(item = Config.get("language"))) {
-                language = item.toLowerCase();
-            }
-            if (Util.hasValue(item = Config.get("country"))) {
-                country = item.toUpperCase();
-                localeCode = language + "_" + country;
-            }
-            if (Util.hasValue(item = Config.get("locale"))) {
-                localeCode = item;
-                if (localeCode.length() >= 2)
-                    language = localeCode.substring(0, 2);
-                if (localeCode.length() >= 5)
-                    country = localeCode.substring(3, 5);
-            }
-            log.debug("Language={}, country={}, locale={}", language, country, localeCode);
-
-            /* Create the locale and get the resource bundle. */
-            locale = new Locale(language, country);
-
-            try {
-                localisedText = ResourceBundle.getBundle("LocalisedText", locale);
-            } catch (MissingResourceException e) {
-                log.warn("Unable to locate LocalisedText resource: ", e);
-            }
+            loadTexts();
         }
 
         /* If the key contains a space, something is wrong, check who did that! */
@@ -104,9 +76,14 @@ public class LocalText extends ResourceBundle {
             return s.toString();
         }
 
-        /* Find the text */
+        /* Find the text (in the locale of the current game, if it has one) */
+        GameContext context = GameContext.current();
+        ResourceBundle texts = context != null ? context.getTexts() : null;
+        if (texts == null) {
+            texts = localisedText;
+        }
         try {
-            result = localisedText.getString(key);
+            result = texts.getString(key);
         } catch (Exception e) {
             if (errorOnMissing) {
                 log.warn("Missing text for key {} in locale {} ({})", key, locale.getDisplayName(), localeCode);
@@ -122,7 +99,41 @@ public class LocalText extends ResourceBundle {
 
     }
 
-    public static void setLocale(String localeCode) {
+    // loads the resource bundle once, games on several threads might request texts at the same time
+    private static synchronized void loadTexts() {
+        if (localisedText != null) return;
+        /*
+         * Check what locale has been configured, if any. If not, we use the
+         * default assigned above.
+         */
+        String item;
+        if (Util.hasValue(item = Config.get("language"))) {
+            language = item.toLowerCase();
+        }
+        if (Util.hasValue(item = Config.get("country"))) {
+            country = item.toUpperCase();
+            localeCode = language + "_" + country;
+        }
+        if (Util.hasValue(item = Config.get("locale"))) {
+            localeCode = item;
+            if (localeCode.length() >= 2)
+                language = localeCode.substring(0, 2);
+            if (localeCode.length() >= 5)
+                country = localeCode.substring(3, 5);
+        }
+        log.debug("Language={}, country={}, locale={}", language, country, localeCode);
+
+        /* Create the locale and get the resource bundle. */
+        locale = new Locale(language, country);
+
+        try {
+            localisedText = ResourceBundle.getBundle("LocalisedText", locale);
+        } catch (MissingResourceException e) {
+            log.warn("Unable to locate LocalisedText resource: ", e);
+        }
+    }
+
+    public static synchronized void setLocale(String localeCode) {
 
         LocalText.localeCode = localeCode;
         String[] codes = localeCode.split("_");
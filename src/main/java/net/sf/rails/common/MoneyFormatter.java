@@ -6,21 +6,38 @@ import net.sf.rails.util.Util;
 public class MoneyFormatter {
 
     private static final String DEFAULT_MONEY_FORMAT = "$@";
-    private static String moneyFormat = null;
-
-    static {
-        String configFormat = Config.get("money_format");
-        if (Util.hasValue(configFormat) && configFormat.matches(".*@.*")) {
-            moneyFormat = configFormat;
-        }
-    }
+    // set explicitly for all games, otherwise the format of the configuration is used
+    private static volatile String moneyFormat = null;
+    // format of the process configuration, used if no GameContext is bound
+    private static volatile String processMoneyFormat = null;
 
     /* This class is never instantiated */
     private MoneyFormatter() {}
 
     public static String money(int amount) {
-        if (moneyFormat == null) moneyFormat = DEFAULT_MONEY_FORMAT;
-        return moneyFormat.replaceFirst("@", String.valueOf(amount));
+        String format = moneyFormat;
+        if (format == null) {
+            // the format is read once per game (see GameContext)
+            GameContext context = GameContext.current();
+            format = context != null ? context.getMoneyFormat() : processMoneyFormat;
+            if (format == null) {
+                format = configMoneyFormat();
+                if (context != null) {
+                    context.setMoneyFormat(format);
+                } else {
+                    processMoneyFormat = format;
+                }
+            }
+        }
+        return format.replace("@", String.valueOf(amount));
+    }
+
+    private static String configMoneyFormat() {
+        String configFormat = Config.get("money_format");
+        if (Util.hasValue(configFormat) && configFormat.contains("@")) {
+            return configFormat;
+        }
+        return DEFAULT_MONEY_FORMAT;
     }
 
     public static void setMoneyFormat(String format) {
@@ -1,6 +1,9 @@
 package net.sf.rails.common;
 
 import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +22,10 @@ import net.sf.rails.util.Util;
 /**
  * ReportBuffer stores messages of the game progress.
  * <p>
+ * The report is also provided as append-only stream of ReportSets (see Subscriber):
+ * each set is rendered once and shared by all subscribers,
+ * undo and redo only move the cursor that separates past and future sets.
+ * <p>
  * Also used for regression testing comparing the output of the report buffer.
  */
 public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
@@ -33,12 +40,15 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
     // static data
     private final Deque<ReportSet> pastReports = Lists.newLinkedList();
     private final Deque<ReportSet> futureReports = Lists.newLinkedList();
+    // number of messages in pastReports
+    private int pastMessages = 0;
 
     private ChangeStack changeStack; // initialized via init()
 
     // dynamic data
     private ReportSet.Builder currentReportBuilder;
     private ReportBuffer.Observer observer;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
 
 
     public ReportBuffer(ReportManager parent, String id) {
@@ -55,6 +65,23 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
         this.observer = null;
     }
 
+    /**
+     * Adds a subscriber to the report stream, it receives all current sets and the cursor first.
+     * Has to be called by the thread that processes the game.
+     */
+    public void subscribe(Subscriber subscriber) {
+        int index = 0;
+        for (ReportSet rs : Iterables.concat(pastReports, futureReports)) {
+            subscriber.append(index++, rs);
+        }
+        subscriber.moveCursor(pastReports.size());
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
     /**
      * Returns a list of all messages (of the past)
      *
@@ -68,6 +95,41 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
         return list.build();
     }
 
+    /**
+     * Returns the messages (of the past) starting at a position
+     *
+     * @param from position of the first message, e.g. the size of a previous call
+     * @return list of messages
+     */
+    public ImmutableList<String> getAsList(int from) {
+        // collect the report sets from the end, usually only the last few are required
+        Deque<ReportSet> sets = Lists.newLinkedList();
+        int position = pastMessages;
+        Iterator<ReportSet> iterator = pastReports.descendingIterator();
+        while (position > from && iterator.hasNext()) {
+            ReportSet rs = iterator.next();
+            sets.addFirst(rs);
+            position -= rs.getMessages().size();
+        }
+
+        ImmutableList.Builder<String> list = ImmutableList.builder();
+        for (ReportSet rs : sets) {
+            for (String message : rs.getMessages()) {
+                if (position++ >= from) {
+                    list.add(message);
+                }
+            }
+        }
+        return list.build();
+    }
+
+    /**
+     * @return number of messages (of the past), equals the size of getAsList()
+     */
+    public int getSize() {
+        return pastMessages;
+    }
+
     private String getAsHtml(ChangeSet currentChangeSet) {
 
         // FIXME (Rails2.0): Add comments back
@@ -127,6 +189,7 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
         ReportSet currentSet = currentReportBuilder.withChangeSet(current).build();
 
         pastReports.addLast(currentSet);
+        pastMessages += currentSet.getMessages().size();
         futureReports.clear();
 
         // a new builder
@@ -134,23 +197,34 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
 
         // update observer (ReportWindow)
         updateObserver();
+
+        // the new set replaces the future sets of the subscribers
+        for (Subscriber subscriber : subscribers) {
+            subscriber.append(pastReports.size() - 1, currentSet);
+        }
     }
 
     @Override
     public void informOnUndo() {
         ReportSet undoSet = pastReports.pollLast();
+        if (undoSet != null) pastMessages -= undoSet.getMessages().size();
         futureReports.addFirst(undoSet);
     }
 
     @Override
     public void informOnRedo() {
         ReportSet redoSet = futureReports.pollFirst();
+        if (redoSet != null) pastMessages += redoSet.getMessages().size();
         pastReports.addLast(redoSet);
     }
 
     @Override
     public void updateAfterUndoRedo() {
         updateObserver();
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.moveCursor(pastReports.size());
+        }
     }
 
     /**
@@ -165,4 +239,25 @@ public class ReportBuffer extends RailsAbstractItem implements ChangeReporter {
 
         void update(String newText);
     }
+
+    /**
+     * Subscriber of the report stream, called by the thread that processes the game.
+     * <p>
+     * The subscriber keeps a list of sets and a cursor: the sets before the cursor are the past,
+     * the others the future that can be redone. The last set of the past is the active one
+     * (see ReportSet.getAsHtml(boolean)).
+     */
+    public interface Subscriber {
+        /**
+         * Sets the report set at the index, all following sets are removed
+         * (a new action discards the undone future). The cursor is behind the set.
+         */
+        void append(int index, ReportSet set);
+
+        /**
+         * Moves the cursor after undo or redo, the sets are unchanged
+         * @param cursor number of sets in the past
+         */
+        void moveCursor(int cursor);
+    }
 }
@@ -1,6 +1,7 @@
 package net.sf.rails.common;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import net.sf.rails.game.state.ChangeSet;
 import net.sf.rails.util.Util;
@@ -9,6 +10,9 @@ import java.util.List;
 
 /**
  * ReportSet contains all messages that reference one ChangeSet
+ * <p>
+ * A ReportSet is immutable and its html is rendered once at creation,
+ * thus it can be shared by all subscribers of the ReportBuffer (e.g. on other threads).
  */
 public class ReportSet {
 
@@ -21,7 +25,7 @@ public class ReportSet {
     private final ChangeSet changeSet;
 
 
-    private final List<String> messages;
+    private final ImmutableList<String> messages;
 
     private final String htmlText;
     private final String htmlTextActive;
@@ -30,7 +34,7 @@ public class ReportSet {
         super();
 
         this.changeSet = changeSet;
-        this.messages = messages;
+        this.messages = ImmutableList.copyOf(messages);
 
         this.htmlText = toHtml(false);
         this.htmlTextActive = toHtml(true);
@@ -41,7 +45,15 @@ public class ReportSet {
     }
 
     public String getAsHtml(ChangeSet currentChangeSet) {
-        if (currentChangeSet == changeSet) {
+        return getAsHtml(currentChangeSet == changeSet);
+    }
+
+    /**
+     * @param active if true, returns the html with indicator and highlighting for the active message
+     * @return html text, null if there are no messages and the set is not active
+     */
+    public String getAsHtml(boolean active) {
+        if (active) {
             return htmlTextActive;
         } else {
             return htmlText;
@@ -1,6 +1,13 @@
 package net.sf.rails.common;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import rails.game.action.PossibleAction;
 
 /**
  * Instances of this class are intended to carry all data that
@@ -12,6 +19,10 @@ import java.io.Serializable;
  * absorb the current PossibleActions and DisplayBuffer classes,
  * and also include many details that the GUI now obtains
  * via direct calls to server methods.
+ * <p>
+ * An update is a delta to the previous update (see GameEngine.getUpdate):
+ * the texts of the changed states and models (by full URI), the possible actions
+ * and the new report lines. ServerToClientCodec converts updates to a compact binary format.
  * @author VosE
  *
  */
@@ -21,6 +32,33 @@ public class ServerToClient implements Serializable {
 
     private GuiHints guiHints = null;
 
+    private final long sequence;
+    private final ImmutableMap<String, String> modelTexts;
+    private final ImmutableList<PossibleAction> possibleActions;
+    private final int reportStart;
+    private final ImmutableList<String> reportLines;
+
+    public ServerToClient() {
+        this(0, ImmutableMap.of(), ImmutableList.of(), 0, ImmutableList.of());
+    }
+
+    /**
+     * @param sequence number of the update, starts with 1 for each game engine
+     * @param modelTexts new texts of the changed states and models, by full URI
+     * @param possibleActions actions that can be submitted now
+     * @param reportStart position of the first report line (after an undo it can be lower than
+     * the end of the previous update, then the client has to drop its lines from this position)
+     * @param reportLines new report lines
+     */
+    public ServerToClient(long sequence, Map<String, String> modelTexts,
+            List<PossibleAction> possibleActions, int reportStart, List<String> reportLines) {
+        this.sequence = sequence;
+        this.modelTexts = ImmutableMap.copyOf(modelTexts);
+        this.possibleActions = ImmutableList.copyOf(possibleActions);
+        this.reportStart = reportStart;
+        this.reportLines = ImmutableList.copyOf(reportLines);
+    }
+
     public GuiHints getUiHints() {
         return guiHints;
     }
@@ -29,5 +67,30 @@ public class ServerToClient implements Serializable {
         this.guiHints = guiHints;
     }
 
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ImmutableMap<String, String> getModelTexts() {
+        return modelTexts;
+    }
+
+    public ImmutableList<PossibleAction> getPossibleActions() {
+        return possibleActions;
+    }
+
+    public int getReportStart() {
+        return reportStart;
+    }
+
+    public ImmutableList<String> getReportLines() {
+        return reportLines;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerToClient #" + sequence + ": " + modelTexts.size() + " models, "
+                + possibleActions.size() + " actions, " + reportLines.size() + " report lines";
+    }
 
 }
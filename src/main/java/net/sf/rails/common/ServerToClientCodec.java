@@ -0,0 +1,121 @@
+package net.sf.rails.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+import rails.game.action.PossibleAction;
+
+/**
+ * Binary format of ServerToClient updates
+ * <p>
+ * Texts are written as length and UTF-8 bytes, the possible actions
+ * with Java serialization (as in save files).
+ * Decoding the actions requires the RailsRoot of the game at the client,
+ * clients without game engine can decode the texts only.
+ */
+public final class ServerToClientCodec {
+
+    private static final int VERSION = 1;
+
+    private ServerToClientCodec() {}
+
+    public static byte[] encode(ServerToClient update) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        out.writeLong(update.getSequence());
+
+        out.writeInt(update.getModelTexts().size());
+        for (Map.Entry<String, String> entry : update.getModelTexts().entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+
+        out.writeInt(update.getReportStart());
+        out.writeInt(update.getReportLines().size());
+        for (String line : update.getReportLines()) {
+            writeString(out, line);
+        }
+
+        ByteArrayOutputStream actions = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(actions)) {
+            oos.writeInt(update.getPossibleActions().size());
+            for (PossibleAction action : update.getPossibleActions()) {
+                oos.writeObject(action);
+            }
+        }
+        out.writeInt(actions.size());
+        actions.writeTo(out);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param root of the game at the client, if null the possible actions are skipped
+     */
+    public static ServerToClient decode(byte[] data, RailsRoot root) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown update version " + version);
+        }
+        long sequence = in.readLong();
+
+        int models = in.readInt();
+        Map<String, String> modelTexts = Maps.newLinkedHashMap();
+        for (int i = 0; i < models; i++) {
+            modelTexts.put(readString(in), readString(in));
+        }
+
+        int reportStart = in.readInt();
+        int lines = in.readInt();
+        List<String> reportLines = Lists.newArrayListWithCapacity(lines);
+        for (int i = 0; i < lines; i++) {
+            reportLines.add(readString(in));
+        }
+
+        List<PossibleAction> possibleActions = Lists.newArrayList();
+        byte[] actions = new byte[in.readInt()];
+        in.readFully(actions);
+        if (root != null) {
+            try (ObjectInputStream ois = new GameLoader.RailsObjectInputStream(root,
+                    new ByteArrayInputStream(actions))) {
+                int count = ois.readInt();
+                for (int i = 0; i < count; i++) {
+                    possibleActions.add((PossibleAction) ois.readObject());
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot decode possible actions", e);
+            }
+        }
+
+        return new ServerToClient(sequence, modelTexts, possibleActions, reportStart, reportLines);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
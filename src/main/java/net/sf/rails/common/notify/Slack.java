@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -18,6 +20,8 @@ import org.apache.http.impl.client.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import net.sf.rails.common.Config;
 import net.sf.rails.game.Player;
 import net.sf.rails.game.PlayerManager;
@@ -36,6 +40,9 @@ public class Slack {
 
     private final CloseableHttpClient httpClient;
 
+    private static final ExecutorService sender = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("slack-notify").setDaemon(true).build());
+
     private String webhook = null;
     private Map<String, String> playerNameMappings = new HashMap<>();
     private String body = null;
@@ -122,7 +129,13 @@ public class Slack {
         String msgBody = StringSubstitutor.replace(body, keys);
         log.debug("Sending message '{}' to Slack for user {}", msgBody, player);
 
-        HttpPost httpPost = new HttpPost(webhook);
+        // the request is sent in the background, thus the game does not wait for the webhook
+        final String url = webhook;
+        sender.execute(() -> post(url, msgBody));
+    }
+
+    private void post(String url, String msgBody) {
+        HttpPost httpPost = new HttpPost(url);
         try {
             httpPost.setEntity(new StringEntity(msgBody));
             httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
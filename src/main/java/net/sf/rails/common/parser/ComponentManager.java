@@ -63,7 +63,7 @@ public class ComponentManager {
         Tag configElement = componentTag;
         if (file != null) {
             String directory =  GameInfoParser.DIRECTORY + ResourceLoader.SEPARATOR + root.getGameName();
-            configElement = Tag.findTopTagInFile(file, directory, name, root.getGameOptions());
+            configElement = Tag.findCachedTopTagInFile(file, directory, name, root.getGameOptions());
         }
 
         try {
@@ -2,6 +2,8 @@ package net.sf.rails.common.parser;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import net.sf.rails.common.GameOption;
 import net.sf.rails.common.GameOptionsSet;
@@ -18,6 +20,8 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -31,9 +35,19 @@ import java.util.*;
 public class Tag {
     private static final Logger log = LoggerFactory.getLogger(Tag.class);
 
+    // fully parsed top tags of game definition files, key = directory, file and tag name
+    // a file has one definition per combination of the game options it reads
+    private static final Cache<List<String>, List<Definition>> definitions = CacheBuilder.newBuilder()
+            .maximumSize(256).build();
+
+    // upper bound of the definitions of one file
+    private static final int MAX_DEFINITIONS_PER_FILE = 32;
+
     // static data
     private final Element element;
     private final GameOptionsSet gameOptions;
+    // game options read by IfOption tags (shared by all tags of a file), null if not recorded
+    private final Map<String, String> readOptions;
 
     // dynamic data
     private Map<String, String> attributes = null;
@@ -44,8 +58,13 @@ public class Tag {
 
 
     public Tag(Element element, GameOptionsSet gameOptions) {
+        this(element, gameOptions, null);
+    }
+
+    private Tag(Element element, GameOptionsSet gameOptions, Map<String, String> readOptions) {
         this.element = element;
         this.gameOptions = gameOptions;
+        this.readOptions = readOptions;
     }
 
     public Map<String, List<Tag>> getChildren() throws ConfigurationException {
@@ -311,6 +330,9 @@ public class Tag {
                     }
 
                     String optionValue = gameOptions.get(name);
+                    if (readOptions != null) {
+                        readOptions.put(name, optionValue);
+                    }
 
                     // For backwards compatibility: search for an extended name
                     /* This applies to parametrized options, such as "UnlimitedTopTrains".
@@ -352,7 +374,7 @@ public class Tag {
                     if (!children.containsKey(childTagName)) {
                         children.put(childTagName, new ArrayList<Tag>());
                     }
-                    children.get(childTagName).add(new Tag(childElement, gameOptions));
+                    children.get(childTagName).add(new Tag(childElement, gameOptions, readOptions));
                 }
             } else if (childNode.getNodeType() == Node.TEXT_NODE) {
                 textBuffer.append(childNode.getNodeValue());
@@ -377,6 +399,11 @@ public class Tag {
      */
     public static Tag findTopTagInFile(String filename, String directory,
                                        String tagName, GameOptionsSet gameOptions) throws ConfigurationException {
+        return findTopTagInFile(filename, directory, tagName, gameOptions, null);
+    }
+
+    private static Tag findTopTagInFile(String filename, String directory, String tagName,
+            GameOptionsSet gameOptions, Map<String, String> readOptions) throws ConfigurationException {
         Document doc = null;
         try {
             // Step 1: create a DocumentBuilderFactory and setNamespaceAware
@@ -404,12 +431,76 @@ public class Tag {
             if ((childNode != null)
                     && (childNode.getNodeName().equals(tagName))
                     && (childNode.getNodeType() == Node.ELEMENT_NODE)) {
-                return new Tag((Element) childNode, gameOptions);
+                return new Tag((Element) childNode, gameOptions, readOptions);
             }
         }
         throw new ConfigurationException("Could not find " + tagName + " in " + filename);
     }
 
+    /**
+     * As findTopTagInFile, but the tag is parsed completely and cached:
+     * all games with the same values of the game options read by the file (in IfOption tags)
+     * share the same tag (thus it must not be changed).
+     */
+    public static Tag findCachedTopTagInFile(String filename, String directory,
+                                             String tagName, GameOptionsSet gameOptions) throws ConfigurationException {
+        List<Definition> fileDefinitions;
+        try {
+            fileDefinitions = definitions.get(Arrays.asList(directory, filename, tagName),
+                    CopyOnWriteArrayList::new);
+        } catch (ExecutionException e) {
+            throw new ConfigurationException("Could not read " + filename, e.getCause());
+        }
+        for (Definition definition : fileDefinitions) {
+            if (definition.matches(gameOptions)) {
+                return definition.tag;
+            }
+        }
+
+        Map<String, String> readOptions = new HashMap<>();
+        Tag tag = findTopTagInFile(filename, directory, tagName, gameOptions, readOptions);
+        tag.parseAll();
+        synchronized (fileDefinitions) {
+            if (fileDefinitions.size() >= MAX_DEFINITIONS_PER_FILE) {
+                fileDefinitions.remove(0);
+            }
+            fileDefinitions.add(new Definition(readOptions, tag));
+        }
+        return tag;
+    }
+
+    // a parsed top tag and the values of the game options it depends on
+    private static class Definition {
+        private final Map<String, String> options;
+        private final Tag tag;
+
+        private Definition(Map<String, String> options, Tag tag) {
+            this.options = options;
+            this.tag = tag;
+        }
+
+        private boolean matches(GameOptionsSet gameOptions) {
+            if (gameOptions == null) {
+                return options.isEmpty();
+            }
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                if (!Objects.equals(gameOptions.get(option.getKey()), option.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // parses the complete tree, afterwards the tags are only read
+    private void parseAll() throws ConfigurationException {
+        for (List<Tag> list : getChildren().values()) {
+            for (Tag child : list) {
+                child.parseAll();
+            }
+        }
+    }
+
     public Element getElement() {
         return element;
     }
@@ -0,0 +1,266 @@
+package net.sf.rails.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import net.sf.rails.common.GameContext;
+import net.sf.rails.common.GameData;
+import net.sf.rails.common.ReportBuffer;
+import net.sf.rails.common.ReportSet;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.common.parser.ConfigurationException;
+import net.sf.rails.game.state.Observable;
+import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.GameSaver;
+import rails.game.action.NullAction;
+import rails.game.action.PossibleAction;
+
+/**
+ * GameEngine runs a game without user interface, e.g. for hosting games on a server.
+ * <p>
+ * All access to a game is serialized by its engine,
+ * thus different games can be run by different threads.
+ * The recovery journal is disabled, hosted games are saved by their host (see GameActor.hibernate).
+ * Each game has its own GameContext (configuration and locale), which is bound while the engine
+ * processes a request.
+ * <p>
+ * Clients are kept in sync by the updates (see getUpdate) instead of observers.
+ */
+public class GameEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(GameEngine.class);
+
+    private final RailsRoot root;
+    private final GameManager gameManager;
+
+    // changes since the last update
+    private final Set<Observable> changed = new LinkedHashSet<>();
+    private long updateSequence = 0;
+    // lowest report position changed since the last update (by undo or a new report set)
+    private int reportPosition = 0;
+
+    private GameEngine(RailsRoot root) {
+        this.root = root;
+        this.gameManager = root.getGameManager();
+        gameManager.setRecoveryActive(false);
+        root.getStateManager().setUpdateListener(changed::addAll);
+        root.getReportManager().getReportBuffer().subscribe(new ReportPositionTracker());
+        reportPosition = 0;
+        // create the possible actions (as the GameUIManager does at the start of a game)
+        root.getGameContext().get(() ->
+                gameManager.process(new NullAction(root, NullAction.Mode.START_GAME)));
+    }
+
+    /**
+     * Creates and starts a new game
+     * @param gameData defines game, options and players
+     * @throws ConfigurationException if the game cannot be created or started
+     */
+    public static GameEngine create(GameData gameData) throws ConfigurationException {
+        return create(gameData, new GameContext());
+    }
+
+    /**
+     * Creates and starts a new game with the given settings
+     * @param context e.g. with the locale of the game
+     */
+    public static GameEngine create(GameData gameData, GameContext context) throws ConfigurationException {
+        try {
+            return context.call(() -> {
+                RailsRoot root = RailsRoot.create(gameData);
+                String startError = root.start();
+                if (startError != null) {
+                    throw new ConfigurationException(startError);
+                }
+                log.debug("Created game {}", gameData.getGameName());
+                return new GameEngine(root);
+            });
+        } catch (ConfigurationException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
+    /**
+     * Loads a game from a save file
+     * <p>
+     * Configuration values stored in the file are stored in the context of the game,
+     * thus they do not affect other games.
+     * @param saveFile to load
+     * @throws Exception if the file cannot be loaded or replayed
+     */
+    public static GameEngine load(File saveFile) throws Exception {
+        return load(saveFile, new GameContext());
+    }
+
+    /**
+     * Loads a game from a save file with the given settings
+     * @param context e.g. with the locale of the game
+     */
+    public static GameEngine load(File saveFile, GameContext context) throws Exception {
+        GameLoader loader = new GameLoader();
+        boolean loaded = context.call(() -> loader.createFromFile(saveFile));
+        if (!loaded) {
+            throw loader.getException() != null ? loader.getException()
+                    : new IllegalStateException("Cannot load " + saveFile);
+        }
+        log.debug("Loaded game {} from {}", loader.getRoot().getGameName(), saveFile);
+        return new GameEngine(loader.getRoot());
+    }
+
+    public RailsRoot getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the actions that can be submitted now
+     */
+    public synchronized List<PossibleAction> getPossibleActions() {
+        return ImmutableList.copyOf(gameManager.getPossibleActions().getList());
+    }
+
+    /**
+     * @return id of the player to act
+     */
+    public synchronized String getCurrentPlayer() {
+        return gameManager.getCurrentPlayer().getId();
+    }
+
+    /**
+     * Processes an action (usually a copy of a possible action with the choices of the player)
+     * @param action to process, if no player is set the action is assigned to the current player
+     * @return messages explaining why the action was rejected, empty if it was processed
+     */
+    public synchronized List<String> submit(PossibleAction action) {
+        return root.getGameContext().get(() -> process(action));
+    }
+
+    private List<String> process(PossibleAction action) {
+        action.setActed();
+        if (action.getPlayerName() == null) {
+            action.setPlayerName(gameManager.getCurrentPlayer().getId());
+        }
+        boolean result = gameManager.process(action);
+
+        String[] messages = root.getReportManager().getDisplayBuffer().get();
+        if (result) {
+            return ImmutableList.of();
+        } else if (messages == null) {
+            return ImmutableList.of("Action not processed: " + action);
+        }
+        return ImmutableList.copyOf(messages);
+    }
+
+    /**
+     * @return number of report messages, use as position for getReport
+     */
+    public synchronized int getReportSize() {
+        return root.getReportManager().getReportBuffer().getSize();
+    }
+
+    /**
+     * @param from position of the first message (e.g. from a previous call of getReportSize)
+     * @return report messages since the position
+     * (after an undo the report can be shorter than the position, then the list is empty)
+     */
+    public synchronized List<String> getReport(int from) {
+        return root.getReportManager().getReportBuffer().getAsList(from);
+    }
+
+    /**
+     * Subscribes to the report stream of the game, e.g. to forward the report to spectators.
+     * The subscriber is called by the thread that processes the game, the report sets are immutable
+     * and can be passed to other threads.
+     */
+    public synchronized void subscribeReport(ReportBuffer.Subscriber subscriber) {
+        root.getReportManager().getReportBuffer().subscribe(subscriber);
+    }
+
+    public synchronized void unsubscribeReport(ReportBuffer.Subscriber subscriber) {
+        root.getReportManager().getReportBuffer().unsubscribe(subscriber);
+    }
+
+    /**
+     * Returns the changes since the previous update: the texts of the changed states and models,
+     * the possible actions and the new report lines.
+     * <p>
+     * The first update contains the changes since the engine was created.
+     */
+    public synchronized ServerToClient getUpdate() {
+        return root.getGameContext().get(this::createUpdate);
+    }
+
+    private ServerToClient createUpdate() {
+        Map<String, String> modelTexts = Maps.newLinkedHashMap();
+        for (Observable observable : changed) {
+            modelTexts.put(observable.getFullURI(), Strings.nullToEmpty(observable.toText()));
+        }
+        changed.clear();
+
+        int reportSize = getReportSize();
+        int reportStart = Math.min(reportPosition, reportSize);
+        List<String> reportLines = getReport(reportStart);
+        reportPosition = reportSize;
+
+        return new ServerToClient(++updateSequence, modelTexts, getPossibleActions(),
+                reportStart, reportLines);
+    }
+
+    /**
+     * Lowers the report position to the first message that changed:
+     * the report can shrink by undo and grow again by a new action between two updates
+     */
+    private class ReportPositionTracker implements ReportBuffer.Subscriber {
+        @Override
+        public void append(int index, ReportSet set) {
+            // the set is the last one of the past already
+            reportPosition = Math.min(reportPosition, getReportSize() - set.getMessages().size());
+        }
+
+        @Override
+        public void moveCursor(int cursor) {
+            reportPosition = Math.min(reportPosition, getReportSize());
+        }
+    }
+
+    /**
+     * Saves the game to a file (on the calling thread)
+     */
+    public synchronized void save(File file) throws IOException {
+        // the saver reads the configuration (e.g. the compression level) while writing
+        try {
+            root.getGameContext().call(() -> {
+                gameManager.createGameSaver().saveGame(file);
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Releases the game, the engine is not used afterwards
+     */
+    public synchronized void dispose() {
+        root.dispose();
+    }
+
+    public synchronized boolean isGameOver() {
+        return gameManager.isGameOver();
+    }
+
+}
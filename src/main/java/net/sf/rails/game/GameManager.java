@@ -17,7 +17,10 @@ import net.sf.rails.game.state.*;
 import net.sf.rails.game.state.Currency;
 import net.sf.rails.ui.swing.GameUIManager;
 import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.ActionHashChain;
+import net.sf.rails.util.ActionJournal;
 import net.sf.rails.util.GameSaver;
+import net.sf.rails.util.SaveArchive;
 import net.sf.rails.util.Util;
 
 import org.apache.commons.lang3.StringUtils;
@@ -34,6 +37,9 @@ import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 
 import com.google.common.collect.ComparisonChain;
 
@@ -54,6 +60,8 @@ public class GameManager extends RailsManager implements Configurable, Owner {
     public static final String ARCHIVE_ENABLED = "save.archive.enabled";
     public static final String ARCHIVE_DIRECTORY = "save.archive.dir";
     public static final String ARCHIVE_KEEP_COUNT = "save.archive.keep_count";
+    // "files" moves the saved files, "chunks" stores them deduplicated (see SaveArchive)
+    public static final String ARCHIVE_MODE = "save.archive.mode";
 
 
     protected Class<? extends StockRound> stockRoundClass = StockRound.class;
@@ -148,6 +156,19 @@ public class GameManager extends RailsManager implements Configurable, Owner {
      */
     protected boolean recoverySaveWarning = true;
 
+    // recovery journal in the autosave folder (not used for headless games)
+    protected boolean recoveryActive = true;
+
+    /**
+     * journal of executed actions for recovery, created on first use
+     */
+    protected ActionJournal recoveryJournal;
+
+    /**
+     * hash chain of executed actions, stored in save files to speed up reload
+     */
+    protected final ActionHashChain actionHashChain = new ActionHashChain();
+
     /**
      * Flag to skip a subsequent Done action (if present) during reloading.
      * <br>This is a fix to maintain backwards compatibility when redundant
@@ -479,6 +500,13 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return possibleActions;
     }
 
+    /**
+     * @param recoveryActive false disables the recovery journal for this game
+     */
+    public void setRecoveryActive(boolean recoveryActive) {
+        this.recoveryActive = recoveryActive;
+    }
+
     protected void setGuiParameters() {
         CompanyManager cm = getRoot().getCompanyManager();
 
@@ -829,6 +857,8 @@ public class GameManager extends RailsManager implements Configurable, Owner {
             possibleActions.add(new GameAction(getRoot(), GameAction.Mode.REDO));
         }
 
+        if (result && !isReloading()) recoverySave();
+
         // logging of game actions activated
         log.debug ("Action result: {}", result);
         for (PossibleAction pa : possibleActions.getList()) {
@@ -1000,20 +1030,45 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         return true;
     }
 
+    /**
+     * Adopts the hashes stored in a save file for the loaded actions
+     * (as far as the executed actions are identical to the loaded actions)
+     * @param verified number of executed actions already verified to match the loaded actions
+     */
+    public void adoptActionHashes(List<PossibleAction> loadedActions, long[] savedHashes, int verified) {
+        adoptActionHashes(loadedActions, 0, savedHashes, verified);
+    }
+
+    /**
+     * @param firstLoaded index of the first loaded action (the previous ones were not read)
+     */
+    public void adoptActionHashes(List<PossibleAction> loadedActions, int firstLoaded, long[] savedHashes,
+            int verified) {
+        int count = Math.max(verified, firstLoaded);
+        while (count < executedActions.size() && count - firstLoaded < loadedActions.size()
+                && executedActions.get(count) == loadedActions.get(count - firstLoaded)) {
+            count++;
+        }
+        actionHashChain.adopt(executedActions.view().subList(0, count), savedHashes);
+    }
+
     public void finishLoading() {
         guiHints.clearVisibilityHints();
     }
 
     /**
      * recoverySave method
-     * Uses filePath defined in save.recovery.filepath
+     * Appends the new executed actions to the recovery journal in the autosave folder
+     * (only if activated by save.recovery.active)
      */
     protected void recoverySave() {
-        if (Config.get("save.recovery.active", "yes").equalsIgnoreCase("no")) return;
+        if (!recoveryActive || Config.get("save.recovery.active", "no").equalsIgnoreCase("no")) return;
 
-        GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
+        if (recoveryJournal == null) {
+            recoveryJournal = new ActionJournal(getRoot().getGameData());
+        }
         try {
-            gameSaver.autoSave();
+            recoveryJournal.record(executedActions.view());
             recoverySaveWarning = false;
         } catch (IOException e) {
             // suppress warning after first occurrence
@@ -1025,17 +1080,65 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         }
     }
 
-    protected boolean save(GameAction saveAction) {
+    /**
+     * Closes the recovery journal (the recovery files are kept)
+     */
+    public void closeRecoveryJournal() {
+        if (recoveryJournal != null) {
+            recoveryJournal.close();
+            recoveryJournal = null;
+        }
+    }
+
+    /**
+     * @return a GameSaver for the current game (executed actions and hashes),
+     * the data does not change later, thus it can be saved on another thread
+     */
+    public GameSaver createGameSaver() {
         GameSaver gameSaver = new GameSaver(getRoot().getGameData(), executedActions.view());
-        File file = new File(saveAction.getFilepath());
+        gameSaver.setActionHashes(actionHashChain.update(executedActions.view()));
+        return gameSaver;
+    }
+
+    /**
+     * Saves the game (SAVE action), waits until the file is written
+     * A failure is reported to the DisplayBuffer.
+     */
+    protected boolean save(GameAction saveAction) {
         try {
-            gameSaver.saveGame(file);
-        } catch (IOException e) {
-            DisplayBuffer.add(this, LocalText.getText("SaveFailed", e.getMessage()));
-            log.error("save failed", e);
+            saveGame(new File(saveAction.getFilepath())).join();
+        } catch (CompletionException e) {
+            Throwable cause = GameSaver.getSaveFailure(e);
+            DisplayBuffer.add(this, LocalText.getText("SaveFailed", cause.getMessage()));
+            log.error("save failed", cause);
             return false;
         }
+        return true;
+    }
+
+    /**
+     * Saves the game in the background
+     * <p>
+     * The executed actions and hashes are collected on the calling (engine) thread,
+     * writing the file and archiving older saves happen on the save thread
+     * (archiving with the game context bound, as it reads the configuration).
+     * The caller reports completion or failure, the game state is not accessed by the save thread.
+     * @param file to save the game to
+     * @return future that completes with the file after it is written and older saves are archived
+     */
+    public CompletableFuture<File> saveGame(File file) {
+        GameSaver gameSaver = createGameSaver();
+        GameContext context = getRoot().getGameContext();
+        return gameSaver.saveGameInBackground(file).thenApply(saved -> context.get(() -> {
+            archiveSavedGames(saved);
+            return saved;
+        }));
+    }
 
+    /**
+     * Moves older save files next to the saved file to the archive directory (if enabled)
+     */
+    private void archiveSavedGames(File file) {
         boolean archive = Config.getBoolean(ARCHIVE_ENABLED, false);
         if ( archive ) {
             int count = Config.getInt(ARCHIVE_KEEP_COUNT, 5);
@@ -1087,8 +1190,23 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                 }
                 if ( files.size() > count ) {
                     File[] fileList = files.toArray(new File[]{});
+                    SaveArchive saveArchive = null;
+                    if ( "chunks".equalsIgnoreCase(Config.get(ARCHIVE_MODE)) ) {
+                        saveArchive = new SaveArchive(archiveDirFile);
+                    }
                     for ( int i = count; i < fileList.length; i++ ) {
                         File toMove = fileList[i];
+                        if ( saveArchive != null ) {
+                            try {
+                                saveArchive.store(toMove);
+                                if ( ! toMove.delete() ) {
+                                    log.warn("Unable to delete archived file {}", toMove.getName());
+                                }
+                            } catch (IOException e) {
+                                log.warn("Unable to archive {} to {}", toMove.getName(), archiveDir, e);
+                            }
+                            continue;
+                        }
                         File destFile = new File(archiveDir + File.separator + toMove.getName());
                         if ( ! toMove.renameTo(destFile) ) {
                             log.warn("Unable to archive {} to {}", toMove.getName(), destFile.getAbsolutePath());
@@ -1097,7 +1215,6 @@ public class GameManager extends RailsManager implements Configurable, Owner {
                 }
             }
         }
-        return true;
     }
 
     /**
@@ -1111,7 +1228,12 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         GameLoader gameLoader = new GameLoader();
         String filepath = reloadAction.getFilepath();
 
-        if (!gameLoader.reloadGameFromFile(getRoot(), new File(filepath))) {
+        // save off the current # of executed actions as it will grow as we execute newly loaded
+        int executedActionsCount = executedActions.size();
+        long[] executedHashes = actionHashChain.update(executedActions.view());
+
+        // only the new actions are read, if the file verifies the executed actions by their hashes
+        if (!gameLoader.reloadGameFromFile(getRoot(), new File(filepath), executedHashes)) {
             return false;
         }
 
@@ -1119,19 +1241,19 @@ public class GameManager extends RailsManager implements Configurable, Owner {
 
         /* gameLoader actions get compared to the executed actions of the current game */
         List<PossibleAction> savedActions = gameLoader.getActions();
+        int firstSavedAction = gameLoader.getFirstActionIndex();
 
         setReloading(true);
 
         // Check size
-        if (savedActions.size() < executedActions.size()) {
-            log.warn("found {} actions in new file but have executed {}", savedActions.size(), executedActions.size());
-            log.debug("last executed action: {}", executedActions.get(executedActions.size() - 1));
-            for ( int i = executedActions.size() - 1, j = 5; i >= 0 && j >= 0; i--, j-- ) {
+        if (firstSavedAction + savedActions.size() < executedActionsCount) {
+            log.warn("found {} actions in new file but have executed {}", savedActions.size(), executedActionsCount);
+            log.debug("last executed action: {}", executedActions.get(executedActionsCount - 1));
+            for ( int i = executedActionsCount - 1, j = 5; i >= 0 && j >= 0; i--, j-- ) {
                 log.debug("executed {}: {}", i, executedActions.get(i));
             }
-            log.debug("last loaded action: {}", savedActions.get(savedActions.size() - 1));
             for ( int i = savedActions.size() -  1, j = 5; i >= 0 && j >= 0; i--, j-- ) {
-                log.debug("loaded {}: {}", i, savedActions.get(i));
+                log.debug("loaded {}: {}", firstSavedAction + i, savedActions.get(i));
             }
 
             DisplayBuffer.add(this, LocalText.getText("LOAD_FAILED_MESSAGE",
@@ -1139,14 +1261,22 @@ public class GameManager extends RailsManager implements Configurable, Owner {
             return false;
         }
 
+        // Check the common actions by their hashes, if the file contains them
+        long[] savedHashes = gameLoader.getActionHashes();
+        boolean prefixVerified = firstSavedAction == executedActionsCount
+                || savedHashes != null && ActionHashChain.matches(executedHashes, savedHashes, executedActionsCount);
+        if (prefixVerified) {
+            log.debug("Verified {} executed actions by hash", executedActionsCount);
+        }
+
         // Check action identity
-        int index = 0;
-        // save off the current # of executed actions as it will grow as we execute newly loaded
-        int executedActionsCount = executedActions.size();
+        int index = firstSavedAction;
         PossibleAction executedAction;
         try {
             for (PossibleAction savedAction : savedActions) {
-                if (index < executedActionsCount) {
+                if (prefixVerified && index < executedActionsCount) {
+                    // skip directly to the new actions
+                } else if (index < executedActionsCount) {
                     executedAction = executedActions.get(index);
                     if (!savedAction.equalsAsAction(executedAction)) {
                         log.warn("loaded action {} is not the same as expected game action {}", savedAction, executedAction);
@@ -1179,6 +1309,10 @@ public class GameManager extends RailsManager implements Configurable, Owner {
         setReloading(false);
         finishLoading();
 
+        if (savedHashes != null) {
+            adoptActionHashes(savedActions, firstSavedAction, savedHashes, executedActionsCount);
+        }
+
         // use new comments (without checks)
         // FIXME (Rails2.0): CommentItems have to be replaced
         // ReportBuffer.setCommentItems(gameLoader.getComments());
@@ -99,7 +99,11 @@ public class Player extends RailsAbstractItem implements RailsMoneyOwner, Portfo
         };
         worth = CalculatedMoneyModel.create(this, "worth", worthMethod);
         portfolio.addModel(worth);
+        // the portfolio model is not updated by its certificates and privates
+        portfolio.getCertificatesModel().addModel(worth);
+        portfolio.getPrivatesOwnedModel().addModel(worth);
         cash.addModel(worth);
+        bankrupt.addModel(worth);
     }
 
     public static Player create(PlayerManager parent, String id, int index) {
@@ -117,6 +121,10 @@ public class Player extends RailsAbstractItem implements RailsMoneyOwner, Portfo
         // create soldThisRound states
         for (PublicCompany company : root.getCompanyManager().getAllPublicCompanies()) {
             soldThisRound.put(company, SoldThisRoundModel.create(this, company));
+            // the price is set at start, but linked to the market model only if the token is dropped
+            if (company.getCurrentPriceModel() != null) {
+                company.getCurrentPriceModel().addModel(worth);
+            }
         }
         // make worth aware of market model
         root.getStockMarket().getMarketModel().addModel(worth);
@@ -1,11 +1,16 @@
 package net.sf.rails.game;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.sf.rails.algorithms.RevenueManager;
 import net.sf.rails.common.Config;
 import net.sf.rails.common.DisplayBuffer;
+import net.sf.rails.common.GameContext;
 import net.sf.rails.common.GameData;
 import net.sf.rails.common.GameOptionsSet;
 import net.sf.rails.common.LocalText;
@@ -28,11 +33,18 @@ public class RailsRoot extends Root implements RailsItem {
     // Base XML file
     private static final String GAME_XML_FILE = "Game.xml";
 
+    // Undo history configuration
+    public static final String UNDO_MEMORY_WINDOW = "save.undo.memory_window";
+    public static final String UNDO_JOURNAL_DIRECTORY = "save.undo.journal_dir";
+
     // Instance fields
 
     // Game data fields
     private final GameData gameData;
 
+    // Settings of the game (the context of the thread that creates the game, if any)
+    private final GameContext gameContext;
+
     // Component Managers
     private GameManager gameManager;
     private CompanyManager companyManager;
@@ -61,12 +73,15 @@ public class RailsRoot extends Root implements RailsItem {
         }
 
         this.gameData = gameData;
+        GameContext context = GameContext.current();
+        this.gameContext = context != null ? context : new GameContext();
     }
 
     public static RailsRoot create(GameData gameData) throws ConfigurationException {
         RailsRoot root = new RailsRoot(gameData);
         log.debug("RailsRoot: instance created");
         root.init();
+        root.initChangeStack();
         log.debug("RailsRoot: instance initialized");
         root.initGameFromXML();
         log.debug("RailsRoot: game configuration initialized");
@@ -77,6 +92,31 @@ public class RailsRoot extends Root implements RailsItem {
     }
 
 
+    public GameContext getGameContext() {
+        return gameContext;
+    }
+
+    private void initChangeStack() {
+        Integer memoryWindow = Config.getInt(UNDO_MEMORY_WINDOW);
+        if (memoryWindow == null || memoryWindow <= 0) return;
+
+        String directory = Config.get(UNDO_JOURNAL_DIRECTORY);
+        try {
+            getStateManager().getChangeStack().setMemoryWindow(memoryWindow,
+                    StringUtils.isBlank(directory) ? null : new File(directory));
+        } catch (IOException e) {
+            log.warn("Cannot create undo journal file, keeping full undo history in memory", e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (gameManager != null) {
+            gameManager.closeRecoveryJournal();
+        }
+        super.dispose();
+    }
+
     // feedback from ComponentManager
     public void setComponent(Configurable component) {
         if (component instanceof PlayerManager) {
@@ -109,7 +149,7 @@ public class RailsRoot extends Root implements RailsItem {
     private void initGameFromXML() throws ConfigurationException {
         String directory = "data" + ResourceLoader.SEPARATOR + gameData.getGameName();
 
-        Tag componentManagerTag = Tag.findTopTagInFile(
+        Tag componentManagerTag = Tag.findCachedTopTagInFile(
                 GAME_XML_FILE, directory, XMLTags.COMPONENT_MANAGER_ELEMENT_ID, gameData.getGameOptions() );
 
         ComponentManager componentManager = new ComponentManager();
@@ -55,7 +55,7 @@ public class TileManager extends RailsManager implements Configurable {
 
         String directory = "data" + ResourceLoader.SEPARATOR + getRoot().getGameName();
         Tag tileDefTop =
-            Tag.findTopTagInFile(tileDefFileName, directory, "Tiles", getRoot().getGameOptions());
+            Tag.findCachedTopTagInFile(tileDefFileName, directory, "Tiles", getRoot().getGameOptions());
         if (tileDefTop == null)
             throw new ConfigurationException(LocalText.getText("NoTilesTag"));
 
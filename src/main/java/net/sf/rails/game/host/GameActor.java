@@ -0,0 +1,362 @@
+package net.sf.rails.game.host;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sf.rails.common.GameContext;
+import net.sf.rails.common.ReportBuffer;
+import net.sf.rails.game.GameEngine;
+import rails.game.action.PossibleAction;
+
+/**
+ * GameActor runs one game: all requests are queued in a bounded mailbox
+ * and executed one after another, thus the game is only accessed by one thread at a time.
+ * <p>
+ * The actor does not own a thread: it is scheduled on the executor of the GameHost
+ * while its mailbox contains requests, and yields after a batch of requests.
+ * If the mailbox is full, further requests are rejected (backpressure).
+ * <p>
+ * An idle actor can be hibernated: the game is saved to a file and the engine is released.
+ * The next request loads the game from the file again before it is executed.
+ * <p>
+ * Report subscribers (e.g. the connections of spectators) share the report sets of the game,
+ * they are kept while the game is hibernated.
+ */
+public class GameActor {
+
+    private static final Logger log = LoggerFactory.getLogger(GameActor.class);
+
+    // requests executed per scheduling, then other games get their turn
+    private static final int BATCH_SIZE = 16;
+
+    // number of recent latencies kept for the metrics
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final String id;
+    // null while hibernated, only changed by the thread draining the mailbox
+    private volatile GameEngine engine;
+    private volatile File hibernationFile;
+    private volatile GameContext hibernationContext;
+    private volatile boolean closed = false;
+    private volatile long lastActive = System.currentTimeMillis();
+    private final Executor executor;
+    private final BlockingQueue<Request<?>> mailbox;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final List<ReportBuffer.Subscriber> reportSubscribers = new CopyOnWriteArrayList<>();
+
+    // metrics
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long processed = 0;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rehydrated = new AtomicLong();
+
+    GameActor(String id, GameEngine engine, Executor executor, int mailboxCapacity) {
+        this.id = id;
+        this.engine = engine;
+        this.executor = executor;
+        this.mailbox = new ArrayBlockingQueue<>(mailboxCapacity);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Submits an action to the game
+     * @return future with the messages explaining a rejection of the action (empty if processed)
+     */
+    public CompletableFuture<List<String>> submit(PossibleAction action) {
+        return ask(engine -> engine.submit(action));
+    }
+
+    /**
+     * Subscribes to the report of the game, the subscriber is called by the threads of the host
+     * @return future that completes after the subscriber received the current report
+     */
+    public CompletableFuture<Void> subscribeReport(ReportBuffer.Subscriber subscriber) {
+        return ask(engine -> {
+            engine.subscribeReport(subscriber);
+            reportSubscribers.add(subscriber);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> unsubscribeReport(ReportBuffer.Subscriber subscriber) {
+        return queue(new Request<>(engine -> {
+            reportSubscribers.remove(subscriber);
+            if (engine != null) {
+                engine.unsubscribeReport(subscriber);
+            }
+            return null;
+        }, false));
+    }
+
+    /**
+     * Queues a request that reads or changes the game
+     * @param request executed with the engine of the game
+     * @return future with the result of the request,
+     * fails with a RejectedExecutionException if the mailbox is full
+     */
+    public <T> CompletableFuture<T> ask(Function<GameEngine, T> request) {
+        return queue(new Request<>(request, true));
+    }
+
+    private <T> CompletableFuture<T> queue(Request<T> queued) {
+        lastActive = System.currentTimeMillis();
+        if (!mailbox.offer(queued)) {
+            rejected.incrementAndGet();
+            queued.result.completeExceptionally(
+                    new RejectedExecutionException("Mailbox of game " + id + " is full"));
+            return queued.result;
+        }
+        schedule();
+        return queued.result;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Request<?> request = mailbox.poll();
+                if (request == null) break;
+                if (request.requiresEngine && engine == null) {
+                    if (closed) {
+                        request.result.completeExceptionally(
+                                new IllegalStateException("Game " + id + " is closed"));
+                        continue;
+                    }
+                    try {
+                        rehydrate();
+                    } catch (Throwable e) {
+                        log.error("Cannot rehydrate game " + id + " from " + hibernationFile, e);
+                        request.result.completeExceptionally(new CompletionException(e));
+                        rethrowIfFatal(e);
+                        continue;
+                    }
+                }
+                request.execute(engine);
+                record(System.nanoTime() - request.queued);
+            }
+        } finally {
+            scheduled.set(false);
+            // requests that arrived in the meantime
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Hibernates the game: saves it to the file and releases the engine.
+     * The request is queued like all others, thus it is executed after the pending requests.
+     * @param file to save the game to, it is kept until the game is hibernated again
+     * @return future that is true if the game was hibernated, false if it was hibernated already
+     */
+    public CompletableFuture<Boolean> hibernate(File file) {
+        return queue(new Request<>(ignored -> {
+            if (engine == null) return false;
+            try {
+                engine.save(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            hibernationFile = file;
+            hibernationContext = engine.getRoot().getGameContext();
+            engine.dispose();
+            engine = null;
+            log.debug("Hibernated game {} to {}", id, file);
+            return true;
+        }, false));
+    }
+
+    /**
+     * Closes the game: the engine is released after the pending requests,
+     * later requests fail
+     * @return future that completes after the game was closed
+     */
+    public CompletableFuture<Void> close() {
+        return queue(new Request<>(ignored -> {
+            closed = true;
+            if (engine != null) {
+                engine.dispose();
+                engine = null;
+            }
+            log.debug("Closed game {}", id);
+            return null;
+        }, false));
+    }
+
+    private void rehydrate() throws Exception {
+        long start = System.nanoTime();
+        // the game keeps its settings (e.g. the locale)
+        engine = GameEngine.load(hibernationFile, hibernationContext);
+        // the loaded game replays the report to the subscribers, starting at index 0
+        for (ReportBuffer.Subscriber subscriber : reportSubscribers) {
+            engine.subscribeReport(subscriber);
+        }
+        rehydrated.incrementAndGet();
+        log.debug("Rehydrated game {} from {} in {} ms", id, hibernationFile,
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * @return true if the engine of the game is released
+     */
+    public boolean isHibernated() {
+        return engine == null;
+    }
+
+    /**
+     * @param idleMillis minimum time since the last request
+     * @return true if the game is active, has no queued requests
+     * and did not receive a request for the given time
+     */
+    public boolean isIdle(long idleMillis) {
+        return engine != null && !closed && !scheduled.get() && mailbox.isEmpty()
+                && System.currentTimeMillis() - lastActive >= idleMillis;
+    }
+
+    private synchronized void record(long latency) {
+        latencies[(int) (processed % LATENCY_SAMPLES)] = latency;
+        processed++;
+    }
+
+    /**
+     * @return number of queued requests
+     */
+    public int getQueueDepth() {
+        return mailbox.size();
+    }
+
+    /**
+     * @return current metrics of the actor
+     */
+    public synchronized Metrics getMetrics() {
+        int samples = (int) Math.min(processed, LATENCY_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        return new Metrics(mailbox.size(), processed, rejected.get(), rehydrated.get(),
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99));
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    private static class Request<T> {
+        private final Function<GameEngine, T> request;
+        private final boolean requiresEngine;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long queued = System.nanoTime();
+
+        private Request(Function<GameEngine, T> request, boolean requiresEngine) {
+            this.request = request;
+            this.requiresEngine = requiresEngine;
+        }
+
+        private void execute(GameEngine engine) {
+            try {
+                result.complete(request.apply(engine));
+            } catch (Throwable e) {
+                // the caller waits for the future, thus it has to complete in all cases
+                log.error("Request failed", e);
+                result.completeExceptionally(e);
+                rethrowIfFatal(e);
+            }
+        }
+    }
+
+    /**
+     * Errors of the virtual machine (e.g. OutOfMemoryError) are passed on to the thread,
+     * all others only fail the request
+     */
+    private static void rethrowIfFatal(Throwable e) {
+        if (e instanceof VirtualMachineError) {
+            throw (VirtualMachineError) e;
+        }
+    }
+
+    /**
+     * Metrics of a GameActor, latencies (from queuing to completion) in nanoseconds
+     * over the recent requests
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final long processed;
+        private final long rejected;
+        private final long rehydrated;
+        private final long latency50;
+        private final long latency90;
+        private final long latency99;
+
+        private Metrics(int queueDepth, long processed, long rejected, long rehydrated,
+                long latency50, long latency90, long latency99) {
+            this.queueDepth = queueDepth;
+            this.processed = processed;
+            this.rejected = rejected;
+            this.rehydrated = rehydrated;
+            this.latency50 = latency50;
+            this.latency90 = latency90;
+            this.latency99 = latency99;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getRehydrated() {
+            return rehydrated;
+        }
+
+        public long getLatency50() {
+            return latency50;
+        }
+
+        public long getLatency90() {
+            return latency90;
+        }
+
+        public long getLatency99() {
+            return latency99;
+        }
+
+        @Override
+        public String toString() {
+            return "queue=" + queueDepth + ", processed=" + processed + ", rejected=" + rejected
+                    + ", rehydrated=" + rehydrated
+                    + ", latency p50/p90/p99=" + latency50 / 1000 + "/" + latency90 / 1000 + "/"
+                    + latency99 / 1000 + " us";
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package net.sf.rails.game.host;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.sf.rails.common.GameData;
+import net.sf.rails.game.GameEngine;
+
+/**
+ * GameHost runs many games in one process, each as a GameActor.
+ * <p>
+ * All actors share a pool of threads, a game only occupies a thread while it has queued requests.
+ * (Virtual threads would avoid the pool, but require Java 21.)
+ * <p>
+ * With hibernation enabled idle games are saved to a directory and their memory is released,
+ * see GameActor.hibernate.
+ */
+public class GameHost {
+
+    private static final Logger log = LoggerFactory.getLogger(GameHost.class);
+
+    // game ids name the save files of hibernated games, thus no path separators or leading dots
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private final ExecutorService executor;
+    private final int mailboxCapacity;
+
+    private final Map<String, GameActor> games = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService hibernation;
+
+    /**
+     * @param threads number of threads shared by all games
+     * @param mailboxCapacity maximum number of queued requests per game
+     */
+    public GameHost(int threads, int mailboxCapacity) {
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("game-host-%d").setDaemon(true).build());
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * Creates and starts a new game
+     * @param id of the game in the host (letters, digits, '.', '_' and '-', not starting with '.')
+     * @throws IllegalArgumentException if the id is not valid
+     * @return future with the actor of the game
+     */
+    public CompletableFuture<GameActor> create(String id, GameData gameData) {
+        checkId(id);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return register(id, GameEngine.create(gameData));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Loads a game from a save file
+     * @param id of the game in the host, see create
+     * @throws IllegalArgumentException if the id is not valid
+     * @return future with the actor of the game
+     */
+    public CompletableFuture<GameActor> load(String id, File saveFile) {
+        checkId(id);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return register(id, GameEngine.load(saveFile));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static void checkId(String id) {
+        if (id == null || !VALID_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid game id " + id);
+        }
+    }
+
+    private GameActor register(String id, GameEngine engine) {
+        GameActor actor = new GameActor(id, engine, executor, mailboxCapacity);
+        if (games.putIfAbsent(id, actor) != null) {
+            throw new IllegalArgumentException("Game " + id + " exists already");
+        }
+        log.debug("Hosting game {}", id);
+        return actor;
+    }
+
+    /**
+     * @return actor of the game, null if there is no game with this id
+     */
+    public GameActor getGame(String id) {
+        return games.get(id);
+    }
+
+    /**
+     * Removes a game from the host, queued requests are still executed,
+     * then the game is closed
+     */
+    public void removeGame(String id) {
+        GameActor actor = games.remove(id);
+        if (actor != null) {
+            actor.close().exceptionally(e -> {
+                log.error("Cannot close game " + id, e);
+                return null;
+            });
+        }
+    }
+
+    public Set<String> getGameIds() {
+        return ImmutableSet.copyOf(games.keySet());
+    }
+
+    public int countOfGames() {
+        return games.size();
+    }
+
+    /**
+     * Hibernates games that did not receive a request for the given time
+     * @param directory for the save files of hibernated games (one file per game id)
+     * @param idleMillis idle time before a game is hibernated
+     */
+    public synchronized void enableHibernation(File directory, long idleMillis) {
+        if (hibernation != null) {
+            throw new IllegalStateException("Hibernation is enabled already");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create directory " + directory);
+        }
+        hibernation = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("game-host-hibernation").setDaemon(true).build());
+        long period = Math.max(1000, idleMillis / 4);
+        hibernation.scheduleWithFixedDelay(() -> hibernateIdleGames(directory, idleMillis),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void hibernateIdleGames(File directory, long idleMillis) {
+        for (GameActor actor : games.values()) {
+            if (actor.isIdle(idleMillis)) {
+                actor.hibernate(new File(directory, actor.getId() + ".rails"))
+                        .exceptionally(e -> {
+                            log.error("Cannot hibernate game " + actor.getId(), e);
+                            return false;
+                        });
+            }
+        }
+    }
+
+    /**
+     * Stops the host after all queued requests are executed
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            if (hibernation != null) {
+                hibernation.shutdownNow();
+            }
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("Game host did not terminate");
+        }
+    }
+
+}
@@ -5,6 +5,8 @@ import net.sf.rails.game.state.Currency;
 
 /**
  * This is MoneyModel that derives it value from a calculation method.
+ * The calculated value is cached until one of the states or models
+ * that the model depends on changes (see Observable.addModel).
  * TODO: Rewrite all methods implementing the interface
  */
 public final class CalculatedMoneyModel extends MoneyModel {
@@ -16,6 +18,10 @@ public final class CalculatedMoneyModel extends MoneyModel {
     
     private final CalculationMethod method;
 
+    // cached result of the calculation method
+    private int cachedValue;
+    private boolean dirty = true;
+
     private CalculatedMoneyModel(RailsItem parent, String id, CalculationMethod method, Currency currency) {
         super(parent, id, currency);
         this.method = method;
@@ -28,7 +34,16 @@ public final class CalculatedMoneyModel extends MoneyModel {
     
     @Override
     public int value() {
-        return method.calculate();
+        if (dirty) {
+            cachedValue = method.calculate();
+            dirty = false;
+        }
+        return cachedValue;
+    }
+
+    @Override
+    protected void invalidate() {
+        dirty = true;
     }
    
     @Override
@@ -1,5 +1,6 @@
 package net.sf.rails.game.specific._1856;
 
+import net.sf.rails.common.parser.ConfigurationException;
 import net.sf.rails.game.*;
 import net.sf.rails.game.financial.StockSpace;
 import net.sf.rails.game.state.IntegerState;
@@ -18,6 +19,15 @@ public final class PublicCompany_1856 extends PublicCompany {
         super(parent, id);    
     }
 
+    @Override
+    public void finishConfiguration(RailsRoot root) throws ConfigurationException {
+        super.finishConfiguration(root);
+        // the game end price (used for player worth) depends on the loans
+        if (currentNumberOfLoans != null && currentPrice != null) {
+            currentNumberOfLoans.addModel(currentPrice);
+        }
+    }
+
     @Override
     public void start(StockSpace startSpace) {
 
@@ -0,0 +1,21 @@
+package net.sf.rails.game.state;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An Observer that receives its updates asynchronously.
+ * <p>
+ * Updates are queued per executor and delivered on it after the
+ * ChangeStack has finished, thus the game engine does not wait for the observer.
+ * If several updates are pending for the same observer, only the latest text is delivered.
+ * The updates of one observer are delivered in order.
+ */
+public interface AsyncObserver extends Observer {
+
+    /**
+     * @return the executor to deliver updates on
+     * (has to return the identical instance for all observers that share a queue)
+     */
+    public Executor getExecutor();
+
+}
@@ -10,11 +10,14 @@ public final class BooleanChange extends Change {
     private final boolean newValue;
     private final boolean oldValue;
     
-    BooleanChange(BooleanState state,  boolean newValue) {
+    /**
+     * Changes of BooleanState are recorded by the ChangeJournal,
+     * thus BooleanChange objects are only created on demand to describe them
+     */
+    BooleanChange(BooleanState state, boolean oldValue, boolean newValue) {
         this.state = state;
         this.newValue = newValue;
-        this.oldValue = state.value();
-        super.init(state);
+        this.oldValue = oldValue;
     }
 
     @Override void execute() {
@@ -21,7 +21,9 @@ public final class BooleanState extends State {
      * @param value set state to this value
      */
     public void set(boolean value) {
-        if (value != this.value) new BooleanChange(this, value);
+        if (value != this.value) {
+            getStateManager().getChangeStack().addBooleanChange(this, this.value, value);
+        }
     }
 
     /**
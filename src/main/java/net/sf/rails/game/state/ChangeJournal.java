@@ -0,0 +1,327 @@
+package net.sf.rails.game.state;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * ChangeJournal stores all changes of a ChangeStack in a compact form.
+ * <p>
+ * Changes of IntegerState and BooleanState are recorded as primitive entries
+ * (observable id, old value, new value) in parallel arrays, so no Change object
+ * is allocated for them.
+ * All other changes are kept as Change objects, referenced from the journal entry.
+ * <p>
+ * ChangeSets are views on a range of journal positions.
+ * <p>
+ * If a ChangeJournalFile is attached, older entries can be spilled to it:
+ * positions below base are read from the file, all others from memory.
+ * Only the primitive entries are bounded this way: the Change objects of all other changes
+ * refer to live game objects and stay in memory for the whole game,
+ * the spilled entry keeps only their index.
+ */
+final class ChangeJournal {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // entry kinds
+    private static final byte INTEGER = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte OBJECT = 2;
+
+    // journal entries in memory (parallel arrays), index = position - base
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] stateIds = new int[INITIAL_CAPACITY];
+    private int[] oldValues = new int[INITIAL_CAPACITY];
+    private int[] newValues = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // entries spilled to file (positions [0, base) )
+    private ChangeJournalFile file;
+    private int base = 0;
+
+    // object changes, referenced by the oldValues slot of OBJECT entries
+    private final List<Change> objectChanges = Lists.newArrayList();
+
+    // resolves the observable ids of primitive states
+    private final StateManager stateManager;
+
+    ChangeJournal(StateManager stateManager) {
+        this.stateManager = stateManager;
+    }
+
+    /**
+     * @return number of entries in the journal
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return number of entries spilled to file
+     */
+    int getSpilled() {
+        return base;
+    }
+
+    /**
+     * @param file to use for spilling older entries
+     */
+    void setFile(ChangeJournalFile file) {
+        if (this.file != null) {
+            unspill(0);
+            this.file.dispose();
+        }
+        this.file = file;
+    }
+
+    /**
+     * Releases the file, reading a spilled entry afterwards throws an IllegalStateException
+     */
+    void dispose() {
+        if (file != null) {
+            file.dispose();
+            file = null;
+        }
+    }
+
+    void addInteger(IntegerState state, int oldValue, int newValue) {
+        add(INTEGER, state.getObservableId(), oldValue, newValue);
+    }
+
+    void addBoolean(BooleanState state, boolean oldValue, boolean newValue) {
+        add(BOOLEAN, state.getObservableId(), oldValue ? 1 : 0, newValue ? 1 : 0);
+    }
+
+    void addObject(Change change) {
+        objectChanges.add(change);
+        add(OBJECT, -1, objectChanges.size() - 1, 0);
+    }
+
+    private void add(byte kind, int stateId, int oldValue, int newValue) {
+        int i = size - base;
+        if (i == kinds.length) {
+            int capacity = i + (i >> 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            stateIds = Arrays.copyOf(stateIds, capacity);
+            oldValues = Arrays.copyOf(oldValues, capacity);
+            newValues = Arrays.copyOf(newValues, capacity);
+        }
+        kinds[i] = kind;
+        stateIds[i] = stateId;
+        oldValues[i] = oldValue;
+        newValues[i] = newValue;
+        size++;
+    }
+
+    private State state(int position) {
+        return (State) stateManager.getRoot().getObservable(stateId(position));
+    }
+
+    // entry accessors for both memory and file
+
+    private ChangeJournalFile file(int position) {
+        if (file == null) {
+            throw new IllegalStateException("Journal entry " + position + " was spilled to a disposed file");
+        }
+        return file;
+    }
+
+    private byte kind(int position) {
+        return position < base ? file(position).getKind(position) : kinds[position - base];
+    }
+
+    private int stateId(int position) {
+        return position < base ? file(position).getStateId(position) : stateIds[position - base];
+    }
+
+    private int oldValue(int position) {
+        return position < base ? file(position).getOldValue(position) : oldValues[position - base];
+    }
+
+    private int newValue(int position) {
+        return position < base ? file(position).getNewValue(position) : newValues[position - base];
+    }
+
+    /**
+     * @return number of entries that fit in memory without growing the arrays
+     */
+    int getCapacity() {
+        return kinds.length;
+    }
+
+    /**
+     * @return the state changed by the entry at position
+     */
+    State getState(int position) {
+        if (kind(position) == OBJECT) {
+            return objectChanges.get(oldValue(position)).getState();
+        }
+        return state(position);
+    }
+
+    /**
+     * @return a Change object that describes the entry at position
+     * (for primitive entries this is created on demand)
+     */
+    Change getChange(int position) {
+        switch (kind(position)) {
+            case INTEGER:
+                return new IntegerChange((IntegerState) state(position),
+                        oldValue(position), newValue(position));
+            case BOOLEAN:
+                return new BooleanChange((BooleanState) state(position),
+                        oldValue(position) != 0, newValue(position) != 0);
+            default:
+                return objectChanges.get(oldValue(position));
+        }
+    }
+
+    /**
+     * @return all states changed by entries in the range [from, to)
+     */
+    ImmutableSet<State> getStates(int from, int to) {
+        ImmutableSet.Builder<State> builder = ImmutableSet.builder();
+        for (int p = from; p < to; p++) {
+            builder.add(getState(p));
+        }
+        return builder.build();
+    }
+
+    /**
+     * execute the entry at position
+     */
+    void execute(int position) {
+        switch (kind(position)) {
+            case INTEGER:
+                ((IntegerState) state(position)).change(newValue(position));
+                break;
+            case BOOLEAN:
+                ((BooleanState) state(position)).change(newValue(position) != 0);
+                break;
+            default:
+                objectChanges.get(oldValue(position)).execute();
+        }
+    }
+
+    /**
+     * undo the entry at position
+     */
+    void undo(int position) {
+        switch (kind(position)) {
+            case INTEGER:
+                ((IntegerState) state(position)).change(oldValue(position));
+                break;
+            case BOOLEAN:
+                ((BooleanState) state(position)).change(oldValue(position) != 0);
+                break;
+            default:
+                objectChanges.get(oldValue(position)).undo();
+        }
+    }
+
+    /**
+     * Moves all entries below position from memory to the file
+     */
+    void spill(int position) {
+        if (file == null || position <= base) return;
+        int count = position - base;
+        for (int i = 0; i < count; i++) {
+            file.append(kinds[i], stateIds[i], oldValues[i], newValues[i]);
+        }
+        int remaining = size - position;
+        System.arraycopy(kinds, count, kinds, 0, remaining);
+        System.arraycopy(stateIds, count, stateIds, 0, remaining);
+        System.arraycopy(oldValues, count, oldValues, 0, remaining);
+        System.arraycopy(newValues, count, newValues, 0, remaining);
+        base = position;
+
+        // release the memory of a large change set that was spilled
+        int capacity = Math.max(INITIAL_CAPACITY, remaining + (remaining >> 1));
+        if (kinds.length > 2 * capacity) {
+            kinds = Arrays.copyOf(kinds, capacity);
+            stateIds = Arrays.copyOf(stateIds, capacity);
+            oldValues = Arrays.copyOf(oldValues, capacity);
+            newValues = Arrays.copyOf(newValues, capacity);
+        }
+    }
+
+    /**
+     * Moves all entries from position onwards from the file back to memory
+     */
+    private void unspill(int position) {
+        if (position >= base) return;
+        ChangeJournalFile file = file(position);
+        int count = base - position;
+        int inMemory = size - base;
+        int capacity = Math.max(kinds.length, count + inMemory);
+        byte[] newKinds = new byte[capacity];
+        int[] newStateIds = new int[capacity];
+        int[] newOldValues = new int[capacity];
+        int[] newNewValues = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            newKinds[i] = file.getKind(position + i);
+            newStateIds[i] = file.getStateId(position + i);
+            newOldValues[i] = file.getOldValue(position + i);
+            newNewValues[i] = file.getNewValue(position + i);
+        }
+        System.arraycopy(kinds, 0, newKinds, count, inMemory);
+        System.arraycopy(stateIds, 0, newStateIds, count, inMemory);
+        System.arraycopy(oldValues, 0, newOldValues, count, inMemory);
+        System.arraycopy(newValues, 0, newNewValues, count, inMemory);
+        kinds = newKinds;
+        stateIds = newStateIds;
+        oldValues = newOldValues;
+        newValues = newNewValues;
+        file.truncate(position);
+        base = position;
+    }
+
+    /**
+     * Removes all entries from position onwards
+     */
+    void truncate(int position) {
+        removeRange(position, size);
+    }
+
+    /**
+     * Removes the entries in the range [from, to) and moves all later entries down
+     */
+    void removeRange(int from, int to) {
+        if (from >= to) return;
+        // entries to remove have to be in memory
+        unspill(from);
+
+        // remove the referenced object changes (these are stored in journal order)
+        int firstObject = -1, lastObject = -1;
+        for (int p = from; p < to; p++) {
+            if (kind(p) == OBJECT) {
+                if (firstObject == -1) firstObject = oldValue(p);
+                lastObject = oldValue(p);
+            }
+        }
+        int removedObjects = 0;
+        if (firstObject != -1) {
+            removedObjects = lastObject - firstObject + 1;
+            objectChanges.subList(firstObject, lastObject + 1).clear();
+        }
+
+        int moved = size - to;
+        System.arraycopy(kinds, to - base, kinds, from - base, moved);
+        System.arraycopy(stateIds, to - base, stateIds, from - base, moved);
+        System.arraycopy(oldValues, to - base, oldValues, from - base, moved);
+        System.arraycopy(newValues, to - base, newValues, from - base, moved);
+        size = from + moved;
+
+        if (removedObjects > 0) {
+            for (int i = from - base; i < size - base; i++) {
+                if (kinds[i] == OBJECT) {
+                    oldValues[i] -= removedObjects;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package net.sf.rails.game.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ChangeJournalFile stores older ChangeJournal entries in a memory-mapped temporary file.
+ * <p>
+ * Each entry occupies a fixed-size record (kind, state id, old value, new value),
+ * thus any entry can be read back by its journal position.
+ */
+final class ChangeJournalFile {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeJournalFile.class);
+
+    static final int ENTRY_SIZE = 1 + 3 * Integer.BYTES;
+
+    // the file grows in steps of this number of entries
+    private static final int GROWTH_ENTRIES = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int size;
+
+    private ChangeJournalFile(File file) throws IOException {
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        this.size = 0;
+        map(GROWTH_ENTRIES);
+    }
+
+    /**
+     * Creates a new temporary journal file
+     * @param directory the directory for the file (null for system default)
+     */
+    static ChangeJournalFile create(File directory) throws IOException {
+        File file = File.createTempFile("rails-changes", ".journal", directory);
+        file.deleteOnExit();
+        log.debug("Created change journal file {}", file);
+        return new ChangeJournalFile(file);
+    }
+
+    private void map(int capacity) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * ENTRY_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map change journal file " + file, e);
+        }
+    }
+
+    private int capacity() {
+        return buffer.capacity() / ENTRY_SIZE;
+    }
+
+    /**
+     * @return number of entries in the file
+     */
+    int size() {
+        return size;
+    }
+
+    void append(byte kind, int stateId, int oldValue, int newValue) {
+        if (size == capacity()) {
+            map(size + GROWTH_ENTRIES);
+        }
+        int offset = size * ENTRY_SIZE;
+        buffer.put(offset, kind);
+        buffer.putInt(offset + 1, stateId);
+        buffer.putInt(offset + 1 + Integer.BYTES, oldValue);
+        buffer.putInt(offset + 1 + 2 * Integer.BYTES, newValue);
+        size++;
+    }
+
+    byte getKind(int position) {
+        return buffer.get(position * ENTRY_SIZE);
+    }
+
+    int getStateId(int position) {
+        return buffer.getInt(position * ENTRY_SIZE + 1);
+    }
+
+    int getOldValue(int position) {
+        return buffer.getInt(position * ENTRY_SIZE + 1 + Integer.BYTES);
+    }
+
+    int getNewValue(int position) {
+        return buffer.getInt(position * ENTRY_SIZE + 1 + 2 * Integer.BYTES);
+    }
+
+    /**
+     * Removes all entries from position onwards
+     * (the file itself is not shrunk, the space is reused)
+     */
+    void truncate(int position) {
+        size = position;
+    }
+
+    /**
+     * Releases the file, no further access is possible afterwards
+     */
+    void dispose() {
+        try {
+            channel.close();
+            randomAccessFile.close();
+        } catch (IOException e) {
+            log.warn("Cannot close change journal file {}", file, e);
+        }
+        if (!file.delete()) {
+            log.debug("Change journal file {} will be deleted on exit", file);
+        }
+    }
+
+}
@@ -2,12 +2,9 @@ package net.sf.rails.game.state;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -15,6 +12,8 @@ import static com.google.common.base.Preconditions.checkState;
  * that belong to the same activity.
  * <p>
  * ChangeSet objects are stored in the ChangeStack.
+ * The changes themselves are kept in the ChangeJournal, the ChangeSet
+ * is a view on the journal range [start, end).
  */
 
 public class ChangeSet {
@@ -22,12 +21,16 @@ public class ChangeSet {
     private static final Logger log = LoggerFactory.getLogger(ChangeSet.class);
 
     // static fields
-    private final List<Change> changes;
+    private final ChangeJournal journal;
+    private final int start;
+    private final int end;
     private final ChangeAction action;
     private final int index;
 
-    ChangeSet(List<Change> changes, ChangeAction action, int index) {
-        this.changes = changes;
+    ChangeSet(ChangeJournal journal, int start, int end, ChangeAction action, int index) {
+        this.journal = journal;
+        this.start = start;
+        this.end = end;
         this.action = action;
         this.index = index;
     }
@@ -38,11 +41,7 @@ public class ChangeSet {
      * @return set of all states affected by Changes
      */
     ImmutableSet<State> getStates() {
-        ImmutableSet.Builder<State> builder = new ImmutableSet.Builder<State>();
-        for (Change change : changes) {
-            builder.add(change.getState());
-        }
-        return builder.build();
+        return journal.getStates(start, end);
     }
 
     /**
@@ -51,9 +50,11 @@ public class ChangeSet {
      * @ŧhrows IllegalStateException if ChangeSet is still open
      */
     void reexecute() {
-        for (Change change : changes) {
-            change.execute();
-            log.debug("Redo: {}", change);
+        for (int p = start; p < end; p++) {
+            journal.execute(p);
+            if (log.isDebugEnabled()) {
+                log.debug("Redo: {}", journal.getChange(p));
+            }
         }
     }
 
@@ -66,10 +67,11 @@ public class ChangeSet {
         checkState(index != -1, "ChangeSet is initial - cannot be undone");
 
         // iterate reverse
-        for (Change change : Lists.reverse(changes)) {
-            log.debug("About to undo: {}", change);
-            change.undo();
-            log.debug("Undone: {}", change);
+        for (int p = end - 1; p >= start; p--) {
+            journal.undo(p);
+            if (log.isDebugEnabled()) {
+                log.debug("Undone: {}", journal.getChange(p));
+            }
         }
     }
 
@@ -93,6 +95,20 @@ public class ChangeSet {
         return index;
     }
 
+    /**
+     * @return first journal position of the ChangeSet
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * @return journal position after the last change of the ChangeSet
+     */
+    int getEnd() {
+        return end;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -2,15 +2,17 @@ package net.sf.rails.game.state;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 
 public class ChangeStack {
 
@@ -19,18 +21,26 @@ public class ChangeStack {
     // static fields
     private final StateManager stateManager;
 
-    private final Deque<ChangeSet> undoStack = Lists.newLinkedList();
-    private final Deque<ChangeSet> redoStack = Lists.newLinkedList();
+    private final Deque<ChangeSet> undoStack = new ArrayDeque<>();
+    private final Deque<ChangeSet> redoStack = new ArrayDeque<>();
+
+    // all changes are recorded in the journal, ChangeSets are ranges of it
+    private final ChangeJournal journal;
 
     private ChangeReporter reporter; // assigned once
 
+    // number of closed ChangeSets kept in memory (0 = unlimited)
+    private int memoryWindow = 0;
+
     // dynamic fields
-    private ImmutableList.Builder<Change> changeBuilder;
+    // journal position where the open (not yet closed) changes start
+    private int openStart;
 
     private ChangeStack(StateManager stateManager) {
         this.stateManager = stateManager;
+        this.journal = new ChangeJournal(stateManager);
         reporter = null;
-        changeBuilder = ImmutableList.builder();
+        openStart = 0;
     }
 
     /**
@@ -51,6 +61,41 @@ public class ChangeStack {
         log.debug("Added ChangeReporter {}", reporter);
     }
 
+    /**
+     * Limits the number of closed ChangeSets that are kept in memory.
+     * The changes of older ChangeSets are moved to a memory-mapped journal file
+     * and read back from it, if they are undone or redone.
+     *
+     * @param changeSets number of ChangeSets to keep in memory (0 = unlimited)
+     * @param directory for the journal file (null for system default)
+     * @throws IOException if the journal file cannot be created
+     */
+    public void setMemoryWindow(int changeSets, File directory) throws IOException {
+        if (changeSets > 0) {
+            journal.setFile(ChangeJournalFile.create(directory));
+        } else {
+            journal.setFile(null);
+        }
+        memoryWindow = changeSets;
+        log.debug("ChangeStack: memory window set to {}", changeSets);
+    }
+
+    /**
+     * Releases the journal file (if any), thus changes moved to it cannot be undone afterwards
+     */
+    public void dispose() {
+        journal.dispose();
+        memoryWindow = 0;
+    }
+
+    /**
+     * @return true if no changeSet has been closed yet (configuration phase)
+     * The initial changeSet cannot be undone.
+     */
+    public boolean isInitial() {
+        return undoStack.isEmpty();
+    }
+
     /**
      * @return the previous (closed) changeSet, null if empty
      */
@@ -63,14 +108,44 @@ public class ChangeStack {
      */
     void addChange(Change change) {
         log.debug("ChangeSet: Add {}", change);
-        changeBuilder.add(change);
+        journal.addObject(change);
         // immediate execution and information of models
         change.execute();
         change.getState().informTriggers(change);
     }
 
+    /**
+     * Add change of an IntegerState to current changeSet
+     * (stored without creating a Change object)
+     */
+    void addIntegerChange(IntegerState state, int oldValue, int newValue) {
+        journal.addInteger(state, oldValue, newValue);
+        state.change(newValue);
+        informTriggersOfLastEntry(state);
+    }
+
+    /**
+     * Add change of a BooleanState to current changeSet
+     * (stored without creating a Change object)
+     */
+    void addBooleanChange(BooleanState state, boolean oldValue, boolean newValue) {
+        journal.addBoolean(state, oldValue, newValue);
+        state.change(newValue);
+        informTriggersOfLastEntry(state);
+    }
+
+    private void informTriggersOfLastEntry(State state) {
+        // the Change object is only created if someone is interested
+        final int position = journal.size() - 1;
+        if (log.isDebugEnabled()) {
+            log.debug("ChangeSet: Add {}", journal.getChange(position));
+        }
+        stateManager.informTriggers(state, () -> journal.getChange(position));
+    }
+
     private boolean checkRequirementsForClose(ChangeAction action) {
-        if (changeBuilder.build().isEmpty() || action == null) {
+        // the initial changeSet is always closed, as configuration changes might bypass the journal
+        if (action == null || journal.size() == openStart && !isInitial()) {
             return false;
         } else {
             return true;
@@ -79,12 +154,20 @@ public class ChangeStack {
 
     public void close(ChangeAction action) {
         if (checkRequirementsForClose(action)) {
-            // this has to be done before the changeBuilder closes
+            // discard the journal entries of the redo changeSets
+            if (!redoStack.isEmpty()) {
+                int redoStart = redoStack.peekFirst().getStart();
+                journal.removeRange(redoStart, openStart);
+                openStart = redoStart;
+                redoStack.clear();
+            }
+            // this has to be done before the changeSet closes
             int index = undoStack.size() + 1;
-            ChangeSet closeSet = new ChangeSet(changeBuilder.build(), action, index);
+            ChangeSet closeSet = new ChangeSet(journal, openStart, journal.size(), action, index);
             log.debug("<<< Closed changeSet {}", closeSet);
             undoStack.addLast(closeSet);
-            redoStack.clear();
+            openStart = closeSet.getEnd();
+            spillOldChangeSets();
 
             if (reporter != null) {
                 reporter.updateOnClose();
@@ -97,8 +180,21 @@ public class ChangeStack {
         }
     }
 
+    private void spillOldChangeSets() {
+        if (memoryWindow <= 0 || undoStack.size() <= memoryWindow) return;
+        // find the oldest ChangeSet inside the window
+        Iterator<ChangeSet> recent = undoStack.descendingIterator();
+        ChangeSet oldestKept = null;
+        for (int i = 0; i < memoryWindow; i++) {
+            oldestKept = recent.next();
+        }
+        journal.spill(oldestKept.getStart());
+    }
+
     private void restart() {
-        changeBuilder = ImmutableList.builder();
+        // open changes are dropped
+        journal.truncate(openStart);
+        openStart = journal.size();
     }
 
 
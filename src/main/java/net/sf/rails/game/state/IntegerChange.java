@@ -9,11 +9,14 @@ public final class IntegerChange extends Change {
     private final int newValue;
     private final int oldValue;
     
-    IntegerChange(IntegerState state, int newValue) {
+    /**
+     * Changes of IntegerState are recorded by the ChangeJournal,
+     * thus IntegerChange objects are only created on demand to describe them
+     */
+    IntegerChange(IntegerState state, int oldValue, int newValue) {
         this.state = state;
         this.newValue = newValue;
-        this.oldValue = state.value();
-        super.init(state);
+        this.oldValue = oldValue;
     }
 
     @Override void execute() {
@@ -27,7 +27,9 @@ public final class IntegerState extends State {
     }
 
     public void set(int value) {
-        if (value != this.value) new IntegerChange(this, value);
+        if (value != this.value) {
+            getStateManager().getChangeStack().addIntegerChange(this, this.value, value);
+        }
     }
 
     public int add(int value) {
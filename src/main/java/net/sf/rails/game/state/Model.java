@@ -16,4 +16,13 @@ public abstract class Model extends Observable {
         super(parent, id);
     }
 
+    /**
+     * Called whenever a state or model that this model depends on has changed
+     * (including undo and redo).
+     * Models that cache derived values have to override this to mark the cache as dirty.
+     */
+    protected void invalidate() {
+        // default: nothing is cached
+    }
+
 }
@@ -16,6 +16,9 @@ public abstract class Observable implements Item {
     private final Item parent;
     private final Context context;
 
+    // dense id assigned by the root (used for int-indexed lookups)
+    private final int observableId;
+
     /**
      * @param parent parent node in item hierarchy (cannot be null)
      * @param id     id of the observable
@@ -39,6 +42,14 @@ public abstract class Observable implements Item {
         }
 
         context.addItem(this);
+        observableId = context.getRoot().registerObservable(this);
+    }
+
+    /**
+     * @return dense id of the observable, unique inside its root
+     */
+    final int getObservableId() {
+        return observableId;
     }
 
     // has to be delayed as at the time of initialization the complete link is not yet defined
@@ -0,0 +1,105 @@
+package net.sf.rails.game.state;
+
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * ObservableLinks stores the links from observables to dependent objects
+ * (models, triggers or observers).
+ * <p>
+ * The links are kept in adjacency arrays indexed by the dense id of the observable,
+ * thus no hashing is required for lookup.
+ */
+final class ObservableLinks<T> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private Object[][] rows = new Object[INITIAL_CAPACITY][];
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    private void ensureCapacity(int id) {
+        if (id < rows.length) return;
+        int capacity = Math.max(id + 1, rows.length + (rows.length >> 1));
+        rows = Arrays.copyOf(rows, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    /**
+     * @return true if the link was not contained before
+     */
+    boolean put(int id, T value) {
+        if (contains(id, value)) return false;
+        ensureCapacity(id);
+        Object[] row = rows[id];
+        int count = counts[id];
+        if (row == null) {
+            row = new Object[2];
+            rows[id] = row;
+        } else if (count == row.length) {
+            row = Arrays.copyOf(row, count * 2);
+            rows[id] = row;
+        }
+        row[count] = value;
+        counts[id] = count + 1;
+        return true;
+    }
+
+    /**
+     * @return true if the link was contained
+     */
+    boolean remove(int id, Object value) {
+        if (id >= rows.length) return false;
+        Object[] row = rows[id];
+        int count = counts[id];
+        for (int i = 0; i < count; i++) {
+            if (row[i].equals(value)) {
+                System.arraycopy(row, i + 1, row, i, count - i - 1);
+                row[count - 1] = null;
+                counts[id] = count - 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean contains(int id, Object value) {
+        if (id >= rows.length) return false;
+        Object[] row = rows[id];
+        for (int i = 0; i < counts[id]; i++) {
+            if (row[i].equals(value)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of links of the observable with that id
+     */
+    int size(int id) {
+        if (id >= rows.length) return 0;
+        return counts[id];
+    }
+
+    /**
+     * @return the index-th link of the observable with that id
+     */
+    @SuppressWarnings("unchecked")
+    T get(int id, int index) {
+        return (T) rows[id][index];
+    }
+
+    /**
+     * @return all links of the observable with that id
+     */
+    @SuppressWarnings("unchecked")
+    ImmutableSet<T> get(int id) {
+        int count = size(id);
+        if (count == 0) return ImmutableSet.of();
+        ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+        for (int i = 0; i < count; i++) {
+            builder.add((T) rows[id][i]);
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,40 @@
+package net.sf.rails.game.state;
+
+/**
+ * Change associated with ObservableLinksState
+ */
+final class ObservableLinksChange<T> extends Change {
+
+    private final ObservableLinksState<T> state;
+    private final int observableId;
+    private final T value;
+    private final boolean addLink;
+
+    ObservableLinksChange(ObservableLinksState<T> state, int observableId, T value, boolean addLink) {
+        this.state = state;
+        this.observableId = observableId;
+        this.value = value;
+        this.addLink = addLink;
+        super.init(state);
+    }
+
+    @Override void execute() {
+        state.change(observableId, value, addLink);
+    }
+
+    @Override void undo() {
+        state.change(observableId, value, !addLink);
+    }
+
+    @Override
+    public ObservableLinksState<T> getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "Change for " + state + ": " + (addLink ? "Add " : "Remove ") + value
+                + " for observable " + observableId;
+    }
+
+}
@@ -0,0 +1,65 @@
+package net.sf.rails.game.state;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A stateful version of ObservableLinks
+ * <p>
+ * Links added during configuration (before the initial ChangeSet is closed)
+ * are stored directly, as the initial ChangeSet cannot be undone.
+ */
+final class ObservableLinksState<T> extends State {
+
+    private final ObservableLinks<T> links = new ObservableLinks<>();
+
+    private ObservableLinksState(Item parent, String id) {
+        super(parent, id);
+    }
+
+    static <T> ObservableLinksState<T> create(Item parent, String id) {
+        return new ObservableLinksState<T>(parent, id);
+    }
+
+    boolean put(Observable observable, T value) {
+        int id = observable.getObservableId();
+        if (links.contains(id, value)) return false;
+        if (getStateManager().getChangeStack().isInitial()) {
+            links.put(id, value);
+        } else {
+            new ObservableLinksChange<T>(this, id, value, true);
+        }
+        return true;
+    }
+
+    boolean remove(Observable observable, T value) {
+        int id = observable.getObservableId();
+        if (!links.contains(id, value)) return false;
+        if (getStateManager().getChangeStack().isInitial()) {
+            links.remove(id, value);
+        } else {
+            new ObservableLinksChange<T>(this, id, value, false);
+        }
+        return true;
+    }
+
+    ImmutableSet<T> get(Observable observable) {
+        return links.get(observable.getObservableId());
+    }
+
+    int size(Observable observable) {
+        return links.size(observable.getObservableId());
+    }
+
+    T get(Observable observable, int index) {
+        return links.get(observable.getObservableId(), index);
+    }
+
+    void change(int id, T value, boolean addLink) {
+        if (addLink) {
+            links.put(id, value);
+        } else {
+            links.remove(id, value);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.sf.rails.game.state;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+
+/**
+ * ObserverQueue delivers updates to AsyncObservers on a specific executor.
+ * <p>
+ * Pending updates are coalesced per observer, only the latest text is kept.
+ * At most one delivery task is scheduled at a time, thus updates of an observer
+ * are delivered in order.
+ */
+final class ObserverQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ObserverQueue.class);
+
+    private final Executor executor;
+
+    // guarded by this
+    private Map<Observer, String> pending = Maps.newLinkedHashMap();
+    private boolean scheduled = false;
+
+    ObserverQueue(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds an update, replacing a pending update of the same observer
+     */
+    void add(Observer observer, String text) {
+        boolean schedule;
+        synchronized (this) {
+            pending.put(observer, text);
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        Map<Observer, String> updates;
+        synchronized (this) {
+            updates = pending;
+            pending = Maps.newLinkedHashMap();
+        }
+        Iterator<Map.Entry<Observer, String>> iterator = updates.entrySet().iterator();
+        try {
+            while (iterator.hasNext()) {
+                Map.Entry<Observer, String> update = iterator.next();
+                try {
+                    update.getKey().update(update.getValue());
+                } catch (RuntimeException e) {
+                    log.error("Observer {} failed on update", update.getKey(), e);
+                }
+            }
+        } finally {
+            // runs after an Error of an observer, too, otherwise no further delivery would be scheduled
+            boolean reschedule;
+            synchronized (this) {
+                // updates not delivered yet, unless replaced by a newer update
+                while (iterator.hasNext()) {
+                    Map.Entry<Observer, String> update = iterator.next();
+                    pending.putIfAbsent(update.getKey(), update.getValue());
+                }
+                // updates added during delivery require another run
+                reschedule = !pending.isEmpty();
+                scheduled = reschedule;
+            }
+            if (reschedule) {
+                executor.execute(this::deliver);
+            }
+        }
+    }
+
+}
@@ -12,12 +12,20 @@ import com.google.common.collect.ImmutableSortedSet;
  * @param <K> type of the keys that are used to structure the portfolio
  * @param <T> type of Ownable (items) stored inside the portfolio
  * Remark: T has to extend Typable<K> to inform the portfolio about its type 
+ * <p>
+ * The immutable views are cached until the portfolio changes (including undo and redo),
+ * as they are requested repeatedly to create the possible actions.
  */
 
 public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>> extends Portfolio<T> {
 
     private final TreeMultimapState<K,T> portfolio = TreeMultimapState.create(this, "map");
 
+    // cached views, null if invalid
+    private ImmutableSortedSet<T> items;
+    private ImmutableSet<T> values;
+    private ImmutableSetMultimap<K, T> view;
+
     private PortfolioMap(Owner parent, String id, Class<T> type) {
         super(parent, id, type);
     }
@@ -40,7 +48,10 @@ public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>
 
     @Override
     public ImmutableSortedSet<T> items() {
-        return ImmutableSortedSet.copyOf(portfolio.values());
+        if (items == null) {
+            items = ImmutableSortedSet.copyOf(portfolio.values());
+        }
+        return items;
     }
     
     @Override
@@ -81,11 +92,25 @@ public class PortfolioMap<K extends Comparable<K>,T extends Ownable & Typable<K>
      * @return a SetMultimap view of the Portfolio
      */
     public ImmutableSetMultimap<K, T> view() {
-        return portfolio.view();
+        if (view == null) {
+            view = portfolio.view();
+        }
+        return view;
     }
 
     public Iterator<T> iterator() {
-        return ImmutableSet.copyOf(portfolio.values()).iterator();
+        // ordered by key, unlike items()
+        if (values == null) {
+            values = ImmutableSet.copyOf(portfolio.values());
+        }
+        return values.iterator();
+    }
+
+    @Override
+    protected void invalidate() {
+        items = null;
+        values = null;
+        view = null;
     }
     
     @Override
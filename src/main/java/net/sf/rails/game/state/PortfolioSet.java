@@ -2,18 +2,22 @@ package net.sf.rails.game.state;
 
 import java.util.Iterator;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 
 /**
  * PortfolioSet is an implementation of a Portfolio that is based on a SortedSet (TreeSet)
 
  * @param <T> the type of Ownable (items) stored inside the portfolio
+ * <p>
+ * The items are cached until the portfolio changes (including undo and redo).
  */
 
 public final class PortfolioSet<T extends Ownable> extends Portfolio<T> {
 
     private final TreeSetState<T> portfolio = TreeSetState.create(this, "set");
+
+    // cached items, null if invalid
+    private ImmutableSortedSet<T> items;
     
     private PortfolioSet(Owner parent, String id, Class<T> type) {
         super(parent, id, type);
@@ -38,7 +42,10 @@ public final class PortfolioSet<T extends Ownable> extends Portfolio<T> {
 
     @Override
     public ImmutableSortedSet<T> items() {
-        return ImmutableSortedSet.copyOf(portfolio);
+        if (items == null) {
+            items = ImmutableSortedSet.copyOf(portfolio);
+        }
+        return items;
     }
     
     @Override
@@ -52,7 +59,12 @@ public final class PortfolioSet<T extends Ownable> extends Portfolio<T> {
     }
 
     public Iterator<T> iterator() {
-        return ImmutableSet.copyOf(portfolio).iterator();
+        return items().iterator();
+    }
+
+    @Override
+    protected void invalidate() {
+        items = null;
     }
 
     @Override
@@ -16,6 +16,11 @@ public class Root extends Context {
    private StateManager stateManager;
    private HashMapState<String, Item> items;
 
+   // dense registry of all observables, index is the observable id
+   // id 0 is not assigned: it is the id of observables that were not constructed (e.g. mocks),
+   // thus they do not share the links of a registered observable
+   private final List<Observable> observables = Lists.newArrayList((Observable) null);
+
    // only used during creation
    private boolean delayItems = true;
    private final List<Item> delayedItems = Lists.newArrayList();
@@ -44,7 +49,7 @@ public class Root extends Context {
    private void initDelayedItems() {
        items = HashMapState.create(this, "items");
        for (Item item: delayedItems) {
-           items.put(item.getFullURI(), item);
+           items.change(item.getFullURI(), item, false);
        }
        delayItems = false;
    }
@@ -53,6 +58,35 @@ public class Root extends Context {
        return stateManager;
    }
 
+   /**
+    * Releases the resources held by the game (e.g. the undo journal file),
+    * the root is not used afterwards
+    */
+   public void dispose() {
+       stateManager.getChangeStack().dispose();
+   }
+
+   /**
+    * Registers an observable (called at construction of the observable)
+    * @return the dense id assigned to the observable
+    */
+   int registerObservable(Observable observable) {
+       observables.add(observable);
+       return observables.size() - 1;
+   }
+
+   /**
+    * @return the observable with the given dense id
+    */
+   Observable getObservable(int observableId) {
+       return observables.get(observableId);
+   }
+
+   // registration during configuration does not have to be undone
+   private boolean isConfiguring() {
+       return stateManager.getChangeStack().isInitial();
+   }
+
    // Item methods
 
    /**
@@ -127,7 +161,11 @@ public class Root extends Context {
                "Root already contains item with identical fullURI = " + item.getFullURI());
 
        // all preconditions ok => add
-       items.put(item.getFullURI(), item);
+       if (isConfiguring()) {
+           items.change(item.getFullURI(), item, false);
+       } else {
+           items.put(item.getFullURI(), item);
+       }
    }
 
    @Override
@@ -137,7 +175,11 @@ public class Root extends Context {
                "Root does not contain item with that fullURI = " + item.getFullURI());
 
        // all preconditions ok => remove
-       items.remove(item.getFullURI());
+       if (isConfiguring()) {
+           items.change(item.getFullURI(), null, true);
+       } else {
+           items.remove(item.getFullURI());
+       }
    }
 
    @Override
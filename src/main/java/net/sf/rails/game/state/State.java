@@ -27,7 +27,7 @@ public abstract class State extends Observable {
     }
     
     void informTriggers(Change change) {
-        this.getStateManager().informTriggers(this, change);
+        this.getStateManager().informTriggers(this, () -> change);
     }
    
 }
\ No newline at end of file
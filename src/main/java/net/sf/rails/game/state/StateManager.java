@@ -3,18 +3,22 @@ package net.sf.rails.game.state;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public final class StateManager extends Manager {
 
@@ -22,14 +26,24 @@ public final class StateManager extends Manager {
 
     private final ChangeStack changeStack;
 
-    private final HashSetState<State> allStates = HashSetState.create(this, "allStates");
-    private final HashMultimapState<Observable, Model> models = HashMultimapState.create(this, "models");
-    private final HashMultimapState<Observable, Triggerable> triggers = HashMultimapState.create(this, "triggers");
+    // states are only registered, thus this is not a state variable
+    private final List<State> allStates = Lists.newArrayList();
+
+    // links indexed by the dense observable ids
+    private final ObservableLinksState<Model> models = ObservableLinksState.create(this, "models");
+    private final ObservableLinksState<Triggerable> triggers = ObservableLinksState.create(this, "triggers");
 
 
     // observers is not a state variable (as the have to register and de-register themselves)
     // gui eleemnts do not have a state of their own (with respect to the game engine)
-    private final HashMultimap<Observable, Observer> observers = HashMultimap.create();
+    private final ObservableLinks<Observer> observers = new ObservableLinks<>();
+    private final Set<Observer> assignedObservers = Sets.newHashSet();
+
+    // delivery queues for asynchronous observers, one per executor
+    private final Map<Executor, ObserverQueue> observerQueues = new IdentityHashMap<>();
+
+    // optional listener for all updates (not a state variable)
+    private UpdateListener updateListener;
 
     // initialized later in init()
     private PortfolioManager portfolioManager;
@@ -46,8 +60,8 @@ public final class StateManager extends Manager {
 
     void init() {
         // manually register embedded states
-        registerState(allStates);
         registerState(models);
+        registerState(triggers);
         // create managers
         portfolioManager = PortfolioManager.create(this, "Portfolios");
         walletManager = WalletManager.create(this, "walletManager");
@@ -72,7 +86,7 @@ public final class StateManager extends Manager {
      * set of all states stored in the StateManager
      */
     ImmutableSet<State> getAllStates() {
-        return allStates.view();
+        return ImmutableSet.copyOf(allStates);
     }
 
     /**
@@ -81,22 +95,27 @@ public final class StateManager extends Manager {
      * @throws IllegalArgumentException - if observer is already assigned to an observable
      */
     synchronized void addObserver(Observer observer, Observable observable) {
-        checkArgument(!observers.containsValue(observer), "Observer can only be assigned to one Observable");
-        observers.put(observable, observer);
+        checkArgument(!assignedObservers.contains(observer), "Observer can only be assigned to one Observable");
+        assignedObservers.add(observer);
+        observers.put(observable.getObservableId(), observer);
     }
 
     /**
      * Remove combination of observer to observable
      */
-    boolean removeObserver(Observer observer, Observable observable) {
-        return observers.remove(observable, observer);
+    synchronized boolean removeObserver(Observer observer, Observable observable) {
+        if (observers.remove(observable.getObservableId(), observer)) {
+            assignedObservers.remove(observer);
+            return true;
+        }
+        return false;
     }
 
     /**
      * Set of all observers that observe the observable
      */
     ImmutableSet<Observer> getObservers(Observable observable) {
-        return ImmutableSet.copyOf(observers.get(observable));
+        return observers.get(observable.getObservableId());
     }
 
     /**
@@ -133,23 +152,31 @@ public final class StateManager extends Manager {
         return triggers.get(observable);
     }
 
-    void informTriggers(State state, Change change) {
+    /**
+     * Informs direct and indirect (via models) triggers of the state
+     * and invalidates all models that depend on the state
+     * @param change supplies the change (only requested if there are triggers)
+     */
+    void informTriggers(State state, Supplier<? extends Change> change) {
 
         // Inform direct triggers
-        for (Triggerable t:getTriggers(state)) {
-            t.triggered(state, change);
-            log.debug("State {} sends change to Trigger {}", state, t);
+        if (triggers.size(state) != 0) {
+            for (Triggerable t:getTriggers(state)) {
+                t.triggered(state, change.get());
+                log.debug("State {} sends change to Trigger {}", state, t);
+            }
         }
 
         // check if there are models
-        ImmutableSet<Model> initModels = getModels(state);
-        if (initModels.isEmpty()) return;
-        ImmutableList<Model> allModels = getModelsToUpdate(initModels);
+        if (models.size(state) == 0) return;
+        ImmutableList<Model> allModels = getModelsToUpdate(getModels(state));
 
-        // Inform indirect triggers
+        // Invalidate models and inform indirect triggers
         for (Model m:allModels) {
+            m.invalidate();
+            if (triggers.size(m) == 0) continue;
             for (Triggerable t:getTriggers(m)) {
-                t.triggered(m, change);
+                t.triggered(m, change.get());
                 log.debug("Model {} sends change to Trigger {}", m, t);
             }
         }
@@ -180,7 +207,8 @@ public final class StateManager extends Manager {
     private static enum Color {WHITE, GREY, BLACK};
     private void topoSort(final Observable v, final Map<Observable, Color> colors, final LinkedList<Model> topoList) {
         colors.put(v, Color.GREY);
-        for (Model m:getModels(v)) {
+        for (int i = 0; i < models.size(v); i++) {
+            Model m = models.get(v, i);
             if (!colors.containsKey(m)) {
                 topoSort(m, colors, topoList);
             } else if (colors.get(m) == Color.GREY) {
@@ -195,29 +223,59 @@ public final class StateManager extends Manager {
     void updateObservers(Set<State> states) {
         // all direct observers
         for (State s:states){
+            if (observers.size(s.getObservableId()) == 0) continue;
             Set<Observer> observers = getObservers(s);
-            if (observers.isEmpty()) continue;
             // cache StateText
             String stateText = s.toText();
             for (Observer o:observers) {
-                o.update(stateText);
+                deliver(o, stateText);
                 log.debug("State {} updates observer {}", s, o);
             }
         }
 
         // all indirect observers
-        for (Model m:getModelsToUpdate(states)) {
+        ImmutableList<Model> modelsToUpdate = getModelsToUpdate(states);
+        // changes might be undone or redone, thus invalidate first
+        for (Model m:modelsToUpdate) {
+            m.invalidate();
+        }
+        if (updateListener != null) {
+            updateListener.updated(states);
+            updateListener.updated(modelsToUpdate);
+        }
+        for (Model m:modelsToUpdate) {
+            if (observers.size(m.getObservableId()) == 0) continue;
             Set<Observer> observers = getObservers(m);
-            if (observers.isEmpty()) continue;
             // cache ModelText
             String modelText = m.toText();
             for (Observer o:observers) {
-                o.update(modelText);
+                deliver(o, modelText);
                 log.debug("Model {} updates observer {}", m, o);
             }
         }
     }
 
+    /**
+     * Sets the listener that is informed about all updated states and models
+     * @param updateListener null to remove the listener
+     */
+    public void setUpdateListener(UpdateListener updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    private void deliver(Observer observer, String text) {
+        if (observer instanceof AsyncObserver) {
+            Executor executor = ((AsyncObserver) observer).getExecutor();
+            ObserverQueue queue;
+            synchronized (observerQueues) {
+                queue = observerQueues.computeIfAbsent(executor, ObserverQueue::new);
+            }
+            queue.add(observer, text);
+        } else {
+            observer.update(text);
+        }
+    }
+
     // StateManager getters for sub-components
     //////////////////////////////////////////
 
@@ -0,0 +1,19 @@
+package net.sf.rails.game.state;
+
+import java.util.Collection;
+
+/**
+ * UpdateListener is informed about all states and models that are updated
+ * (after each action, undo and redo), independent of registered observers.
+ * <p>
+ * It allows to forward the changes of a game without an observer per field,
+ * e.g. to remote clients.
+ */
+public interface UpdateListener {
+
+    /**
+     * @param observables states and models that are updated (models in their update sequence)
+     */
+    public void updated(Collection<? extends Observable> observables);
+
+}
@@ -0,0 +1,254 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.util.GameLoader;
+
+/**
+ * ReplayValidator replays all save files below a directory in parallel
+ * and compares the resulting game reports to the stored report files (as TestGame does).
+ * <p>
+ * Each save is loaded into its own RailsRoot with an isolated transient configuration.
+ * The result is written as tab separated values, one line per save:
+ * file, status, index of the first failing action, number of actions,
+ * time in milliseconds, bytes allocated by the replay and a message.
+ * <p>
+ * Usage: ReplayValidator directory [threads] [output file]
+ */
+public class ReplayValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayValidator.class);
+
+    enum Status {
+        PASS,       // report identical to the stored report
+        LOADED,     // replayed without errors, no stored report
+        FAIL,       // report differs from the stored report
+        ERROR       // save could not be loaded or replayed
+    }
+
+    private static final String HEADER = "file\tstatus\tfailedAction\tactions\tmillis\tallocatedBytes\tmessage";
+
+    private final File directory;
+    private final int threads;
+
+    public ReplayValidator(File directory, int threads) {
+        this.directory = directory;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: ReplayValidator directory [threads] [output file]");
+            return;
+        }
+        ConfigManager.initConfiguration(true);
+
+        File directory = new File(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        int failures;
+        if (args.length > 2) {
+            try (PrintWriter out = new PrintWriter(args[2], StandardCharsets.UTF_8.name())) {
+                failures = new ReplayValidator(directory, threads).run(out);
+            }
+        } else {
+            PrintWriter out = new PrintWriter(System.out);
+            failures = new ReplayValidator(directory, threads).run(out);
+            out.flush();
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Replays all saves and writes one result line per save
+     * @return number of saves that failed
+     */
+    public int run(PrintWriter out) throws InterruptedException {
+        List<File> saveFiles = Lists.newArrayList();
+        collectSaveFiles(directory, saveFiles);
+        log.info("Replaying {} saves below {} on {} threads", saveFiles.size(), directory, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("replay-%d").setDaemon(true).build());
+        CompletionService<Result> results = new ExecutorCompletionService<>(executor);
+        for (File saveFile : saveFiles) {
+            results.submit(() -> ConfigManager.getInstance().callIsolated(() -> validate(saveFile)));
+        }
+
+        out.println(HEADER);
+        int failures = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < saveFiles.size(); i++) {
+            Result result;
+            try {
+                result = results.take().get();
+            } catch (ExecutionException e) {
+                // validate reports all failures as result, thus this is unexpected
+                log.error("Validation aborted", e);
+                failures++;
+                continue;
+            }
+            if (result.status == Status.FAIL || result.status == Status.ERROR) {
+                failures++;
+            }
+            out.println(result);
+            out.flush();
+        }
+        executor.shutdown();
+
+        log.info("Replayed {} saves in {} s, {} failed, peak heap {} MB", saveFiles.size(),
+                (System.nanoTime() - start) / 1000000000, failures, peakHeap() / (1024 * 1024));
+        return failures;
+    }
+
+    private static void collectSaveFiles(File directory, List<File> files) {
+        File[] entries = directory.listFiles();
+        if (entries == null) return;
+        String extension = "." + Config.get("save.filename.extension");
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                collectSaveFiles(entry, files);
+            } else if (entry.getName().endsWith(extension)) {
+                files.add(entry);
+            }
+        }
+    }
+
+    private Result validate(File saveFile) {
+        Result result = new Result(saveFile);
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+
+        // number of report lines after each replayed action
+        List<Integer> reportSizes = Lists.newArrayList();
+        GameLoader loader = new GameLoader();
+        loader.setReplayObserver((index, action) -> reportSizes.add(
+                loader.getRoot().getReportManager().getReportBuffer().getSize()));
+
+        try {
+            if (!loader.createFromFile(saveFile)) {
+                result.status = Status.ERROR;
+                result.failedAction = loader.getFailedAction() != -1 ? loader.getFailedAction() : reportSizes.size();
+                result.message = String.valueOf(loader.getException());
+            } else {
+                compareReport(saveFile, loader, reportSizes, result);
+            }
+        } catch (Exception | LinkageError e) {
+            result.status = Status.ERROR;
+            result.failedAction = reportSizes.size();
+            result.message = e.toString();
+        } finally {
+            result.actions = loader.getActions() != null ? loader.getActions().size() : 0;
+            if (loader.getRoot() != null) {
+                loader.getRoot().dispose();
+            }
+        }
+
+        result.millis = (System.nanoTime() - start) / 1000000;
+        result.allocatedBytes = allocated == -1 ? -1 : allocatedBytes() - allocated;
+        return result;
+    }
+
+    private void compareReport(File saveFile, GameLoader loader, List<Integer> reportSizes, Result result)
+            throws IOException {
+        String name = saveFile.getName();
+        File reportFile = new File(saveFile.getParentFile(), name.substring(0, name.lastIndexOf('.'))
+                + "." + Config.get("report.filename.extension"));
+        if (!reportFile.exists()) {
+            result.status = Status.LOADED;
+            return;
+        }
+
+        List<String> expected = Files.readAllLines(reportFile.toPath(), StandardCharsets.UTF_8);
+        // trailing empty lines are ignored (as in TestGame)
+        while (!expected.isEmpty() && expected.get(expected.size() - 1).trim().isEmpty()) {
+            expected.remove(expected.size() - 1);
+        }
+        List<String> actual = loader.getRoot().getReportManager().getReportBuffer().getAsList();
+
+        int line = 0;
+        while (line < expected.size() && line < actual.size() && expected.get(line).equals(actual.get(line))) {
+            line++;
+        }
+        if (line == expected.size() && line == actual.size()) {
+            result.status = Status.PASS;
+            return;
+        }
+
+        // the first action after which the report contains the differing line
+        int action = 0;
+        while (action < reportSizes.size() && reportSizes.get(action) <= line) {
+            action++;
+        }
+        result.status = Status.FAIL;
+        result.failedAction = action;
+        result.message = "Reports differ in line " + (line + 1) + ": expected '"
+                + (line < expected.size() ? expected.get(line) : "") + "', actual '"
+                + (line < actual.size() ? actual.get(line) : "") + "'";
+    }
+
+    // bytes allocated by the current thread, -1 if not supported
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static class Result {
+        private final File file;
+        private Status status;
+        private int failedAction = -1;
+        private int actions;
+        private long millis;
+        private long allocatedBytes;
+        private String message = "";
+
+        private Result(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String toString() {
+            return file.getPath() + "\t" + status + "\t" + failedAction + "\t" + actions + "\t" + millis
+                    + "\t" + allocatedBytes + "\t" + message.replace('\t', ' ').replace('\n', ' ');
+        }
+    }
+
+}
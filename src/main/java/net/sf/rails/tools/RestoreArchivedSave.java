@@ -0,0 +1,34 @@
+package net.sf.rails.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.sf.rails.util.SaveArchive;
+
+/**
+ * Lists or restores the save files of an archive written with save.archive.mode=chunks.
+ * <p>
+ * Usage: RestoreArchivedSave archive-directory [save name [target file]]
+ */
+public class RestoreArchivedSave {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: RestoreArchivedSave archive-directory [save name [target file]]");
+            return;
+        }
+        SaveArchive archive = new SaveArchive(new File(args[0]));
+
+        if (args.length == 1) {
+            for (String name : archive.getSaveNames()) {
+                System.out.println(name);
+            }
+            return;
+        }
+
+        File target = new File(args.length > 2 ? args[2] : args[1]);
+        archive.restore(args[1], target);
+        System.out.println("Restored " + args[1] + " to " + target.getAbsolutePath());
+    }
+
+}
@@ -0,0 +1,318 @@
+package net.sf.rails.tools;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.GameData;
+import net.sf.rails.common.GameInfo;
+import net.sf.rails.common.GameOption;
+import net.sf.rails.common.GameOptionsSet;
+import net.sf.rails.common.parser.GameOptionsParser;
+import net.sf.rails.game.GameEngine;
+import net.sf.rails.game.Train;
+import rails.game.action.BidStartItem;
+import rails.game.action.BuyCertificate;
+import rails.game.action.BuyPrivate;
+import rails.game.action.BuyTrain;
+import rails.game.action.DiscardTrain;
+import rails.game.action.GameAction;
+import rails.game.action.NullAction;
+import rails.game.action.PossibleAction;
+import rails.game.action.RequestTurn;
+import rails.game.action.SetDividend;
+import rails.game.action.StartCompany;
+import rails.game.correct.CorrectionAction;
+
+/**
+ * SelfPlaySimulator plays games automatically in parallel, e.g. to load test the game engine.
+ * <p>
+ * Each game is played by a seeded policy that picks one of the possible actions
+ * and fills in the choices of the common action types (prices, revenue, trains).
+ * The seed of a game is also used as RandomSeed option, which seeds the random generator
+ * of the game engine (see GameManager.getRandomGenerator), thus a game can be reproduced by its seed.
+ * Actions rejected by the engine are excluded (by their text) until the next action is processed.
+ * <p>
+ * The result contains one line per game (seed, outcome, actions, rejected actions, time)
+ * and a summary with actions per second and a latency histogram of the processed actions.
+ * <p>
+ * Usage: SelfPlaySimulator game players [games [threads [seed [random|heuristic [max actions]]]]]
+ */
+public class SelfPlaySimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(SelfPlaySimulator.class);
+
+    enum Policy {
+        RANDOM,     // all possible actions are equally likely
+        HEURISTIC   // prefers actions that advance the game to passing
+    }
+
+    enum Outcome {
+        GAME_OVER,  // game finished
+        LIMIT,      // maximum number of actions reached
+        STUCK,      // all possible actions were rejected
+        ERROR       // the engine threw an exception
+    }
+
+    // latency buckets in powers of two microseconds
+    private static final int BUCKETS = 24;
+
+    private final String gameName;
+    private final int players;
+    private final Policy policy;
+    private final int maxActions;
+
+    private final long[] histogram = new long[BUCKETS];
+
+    public SelfPlaySimulator(String gameName, int players, Policy policy, int maxActions) {
+        this.gameName = gameName;
+        this.players = players;
+        this.policy = policy;
+        this.maxActions = maxActions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: SelfPlaySimulator game players [games [threads [seed "
+                    + "[random|heuristic [max actions]]]]]");
+            return;
+        }
+        ConfigManager.initConfiguration(true);
+
+        String gameName = args[0];
+        int players = Integer.parseInt(args[1]);
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        Policy policy = args.length > 5 ? Policy.valueOf(args[5].toUpperCase()) : Policy.HEURISTIC;
+        int maxActions = args.length > 6 ? Integer.parseInt(args[6]) : 10000;
+
+        int errors = new SelfPlaySimulator(gameName, players, policy, maxActions).run(games, threads, seed);
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    /**
+     * Plays the games with the seeds seed, seed + 1, ... and prints the results
+     * @return number of games that ended with an engine exception
+     */
+    public int run(int games, int threads, long seed) throws InterruptedException {
+        log.info("Playing {} games of {} with {} players on {} threads", games, gameName, players, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("self-play-%d").setDaemon(true).build());
+        CompletionService<Result> results = new ExecutorCompletionService<>(executor);
+        for (int i = 0; i < games; i++) {
+            long gameSeed = seed + i;
+            results.submit(() -> play(gameSeed));
+        }
+
+        System.out.println("seed\toutcome\tactions\trejected\tmillis\tmessage");
+        int errors = 0;
+        long actions = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            Result result;
+            try {
+                result = results.take().get();
+            } catch (ExecutionException e) {
+                // play reports all failures as result, thus this is unexpected
+                log.error("Game aborted", e);
+                errors++;
+                continue;
+            }
+            if (result.outcome == Outcome.ERROR) {
+                errors++;
+            }
+            actions += result.actions;
+            System.out.println(result);
+        }
+        executor.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d actions in %.1f s, %.0f actions/s, %d errors%n",
+                games, actions, seconds, actions / seconds, errors);
+        printHistogram();
+        return errors;
+    }
+
+    private Result play(long seed) {
+        Result result = new Result(seed);
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        GameEngine engine = null;
+        try {
+            engine = GameEngine.create(createGameData(seed));
+            Set<String> rejected = Sets.newHashSet();
+            result.outcome = Outcome.LIMIT;
+            while (result.actions + result.rejected < maxActions) {
+                if (engine.isGameOver()) {
+                    result.outcome = Outcome.GAME_OVER;
+                    break;
+                }
+                List<PossibleAction> candidates = Lists.newArrayList();
+                for (PossibleAction action : engine.getPossibleActions()) {
+                    if (isPlayable(action) && !rejected.contains(action.toString())) {
+                        candidates.add(action);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    result.outcome = Outcome.STUCK;
+                    result.message = "No accepted action for " + engine.getCurrentPlayer();
+                    break;
+                }
+
+                PossibleAction action = choose(candidates, random);
+                // rejected actions might be offered again as new instances
+                String offered = action.toString();
+                complete(action, random);
+                long submitted = System.nanoTime();
+                List<String> messages = engine.submit(action);
+                record(System.nanoTime() - submitted);
+                if (messages.isEmpty()) {
+                    result.actions++;
+                    rejected.clear();
+                } else {
+                    result.rejected++;
+                    rejected.add(offered);
+                }
+            }
+        } catch (Exception | LinkageError e) {
+            log.error("Game with seed " + seed + " failed after " + result.actions + " actions", e);
+            result.outcome = Outcome.ERROR;
+            result.message = e.toString();
+        } finally {
+            if (engine != null) {
+                engine.dispose();
+            }
+        }
+        result.millis = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    private GameData createGameData(long seed) throws Exception {
+        GameOptionsSet.Builder options = GameOptionsParser.load(gameName);
+        List<String> playerNames = Lists.newArrayList();
+        for (int i = 1; i <= players; i++) {
+            playerNames.add("Player" + i);
+        }
+        GameInfo game = GameInfo.builder().withName(gameName).build();
+        GameData gameData = GameData.create(game, options, playerNames);
+        // replaces the seed taken from the clock, or adds it if the game has no such option
+        gameData.getGameOptions().getOptions().put(GameOption.RANDOM_SEED, String.valueOf(seed));
+        return gameData;
+    }
+
+    // undo, redo, corrections and turn requests would not advance the game
+    private static boolean isPlayable(PossibleAction action) {
+        return !(action instanceof GameAction || action instanceof CorrectionAction
+                || action instanceof RequestTurn);
+    }
+
+    private PossibleAction choose(List<PossibleAction> candidates, Random random) {
+        if (policy == Policy.HEURISTIC) {
+            List<PossibleAction> active = Lists.newArrayList();
+            for (PossibleAction action : candidates) {
+                if (!(action instanceof NullAction)) {
+                    active.add(action);
+                }
+            }
+            // pass in one of four turns, even if there are other actions
+            if (!active.isEmpty() && random.nextInt(4) != 0) {
+                return active.get(random.nextInt(active.size()));
+            }
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    /**
+     * Fills in the choices that the user interface asks for
+     */
+    private static void complete(PossibleAction action, Random random) {
+        if (action instanceof StartCompany) {
+            StartCompany start = (StartCompany) action;
+            int[] prices = start.getStartPrices();
+            if (prices != null && prices.length > 0) {
+                start.setStartPrice(prices[random.nextInt(prices.length)]);
+            }
+            start.setNumberBought(1);
+        } else if (action instanceof BuyCertificate) {
+            ((BuyCertificate) action).setNumberBought(1);
+        } else if (action instanceof BuyTrain) {
+            BuyTrain buy = (BuyTrain) action;
+            buy.setPricePaid(buy.getFixedCost() > 0 ? buy.getFixedCost() : buy.getTrain().getCost());
+        } else if (action instanceof SetDividend) {
+            SetDividend dividend = (SetDividend) action;
+            dividend.setActualRevenue(dividend.getPresetRevenue());
+            int[] allocations = dividend.getAllowedAllocations();
+            if (allocations != null && allocations.length > 0) {
+                dividend.setRevenueAllocation(allocations[random.nextInt(allocations.length)]);
+            }
+        } else if (action instanceof DiscardTrain) {
+            DiscardTrain discard = (DiscardTrain) action;
+            List<Train> trains = Lists.newArrayList(discard.getOwnedTrains());
+            if (!trains.isEmpty()) {
+                discard.setDiscardedTrain(trains.get(random.nextInt(trains.size())));
+            }
+        } else if (action instanceof BidStartItem) {
+            BidStartItem bid = (BidStartItem) action;
+            bid.setActualBid(bid.getMinimumBid());
+        } else if (action instanceof BuyPrivate) {
+            BuyPrivate buy = (BuyPrivate) action;
+            buy.setPrice(buy.getMinimumPrice());
+        }
+    }
+
+    private synchronized void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        histogram[bucket]++;
+    }
+
+    private synchronized void printHistogram() {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) return;
+        System.out.println("latency (us)\tactions\tcumulative %");
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (histogram[i] == 0) continue;
+            cumulative += histogram[i];
+            System.out.printf("< %d\t%d\t%.1f%n", 1L << (i + 1), histogram[i], 100.0 * cumulative / total);
+        }
+    }
+
+    private static class Result {
+        private final long seed;
+        private Outcome outcome;
+        private int actions;
+        private int rejected;
+        private long millis;
+        private String message = "";
+
+        private Result(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public String toString() {
+            return seed + "\t" + outcome + "\t" + actions + "\t" + rejected + "\t" + millis
+                    + "\t" + message.replace('\t', ' ').replace('\n', ' ');
+        }
+    }
+
+}
@@ -1114,7 +1114,7 @@ public class GameStatus extends GridPanel implements ActionListener {
         boolean visible = rowVisibilityObservers[i].lastValue();
 
         if (clickable) {
-            certPerPlayerButton[i][j].setText(certPerPlayer[i][j].getText());
+            copyText(certPerPlayer[i][j], certPerPlayerButton[i][j]);
             syncToolTipText (certPerPlayer[i][j], certPerPlayerButton[i][j]);
         } else {
             certPerPlayerButton[i][j].clearPossibleActions();
@@ -1136,7 +1136,7 @@ public class GameStatus extends GridPanel implements ActionListener {
     protected void setIPOCertButton(int i, boolean clickable) {
         boolean visible = rowVisibilityObservers[i].lastValue();
         if (clickable) {
-            certInIPOButton[i].setText(certInIPO[i].getText());
+            copyText(certInIPO[i], certInIPOButton[i]);
             syncToolTipText (certInIPO[i], certInIPOButton[i]);
         } else {
             certInIPOButton[i].clearPossibleActions();
@@ -1158,7 +1158,7 @@ public class GameStatus extends GridPanel implements ActionListener {
     protected void setPoolCertButton(int i, boolean clickable) {
         boolean visible = rowVisibilityObservers[i].lastValue();
         if (clickable) {
-            certInPoolButton[i].setText(certInPool[i].getText());
+            copyText(certInPool[i], certInPoolButton[i]);
             syncToolTipText (certInIPO[i], certInIPOButton[i]);
         } else {
             certInPoolButton[i].clearPossibleActions();
@@ -1180,7 +1180,7 @@ public class GameStatus extends GridPanel implements ActionListener {
     protected void setTreasuryCertButton(int i, boolean clickable) {
         boolean visible = rowVisibilityObservers[i].lastValue();
         if (clickable) {
-            certInTreasuryButton[i].setText(certInTreasury[i].getText());
+            copyText(certInTreasury[i], certInTreasuryButton[i]);
             syncToolTipText (certInTreasury[i], certInTreasuryButton[i]);
         } else {
             certInTreasuryButton[i].clearPossibleActions();
@@ -1193,7 +1193,7 @@ public class GameStatus extends GridPanel implements ActionListener {
         boolean visible = rowVisibilityObservers[i].lastValue();
 
         if (clickable) {
-            compCashButton[i].setText(compCash[i].getText());
+            copyText(compCash[i], compCashButton[i]);
         } else {
             compCashButton[i].clearPossibleActions();
         }
@@ -1206,7 +1206,7 @@ public class GameStatus extends GridPanel implements ActionListener {
     protected void setPlayerCashButton(int i, boolean clickable, PossibleAction action){
 
         if (clickable) {
-            playerCashButton[i].setText(playerCash[i].getText());
+            copyText(playerCash[i], playerCashButton[i]);
         } else {
             playerCashButton[i].clearPossibleActions();
         }
@@ -1217,6 +1217,14 @@ public class GameStatus extends GridPanel implements ActionListener {
             playerCashButton[i].addPossibleAction(action);
     }
 
+    /**
+     * Copies the text of a field to its button once the field has received
+     * the updates of the last action, which are delivered later on the EDT.
+     */
+    protected void copyText (Field field, ClickField clickField) {
+        SwingUtilities.invokeLater(() -> clickField.setText(field.getText()));
+    }
+
     protected void syncToolTipText (Field field, ClickField clickField) {
         String baseText = field.getToolTipText();
         clickField.setToolTipText(Util.hasValue(baseText) ? baseText : null);
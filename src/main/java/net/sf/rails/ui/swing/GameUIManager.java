@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Observable;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.IntStream;
 
 import javax.swing.*;
@@ -51,6 +52,7 @@ import net.sf.rails.ui.swing.elements.DialogOwner;
 import net.sf.rails.ui.swing.elements.MessageDialog;
 import net.sf.rails.ui.swing.elements.NonModalDialog;
 import net.sf.rails.ui.swing.elements.RadioButtonDialog;
+import net.sf.rails.util.GameSaver;
 import net.sf.rails.util.Util;
 import rails.game.action.DiscardTrain;
 import rails.game.action.ExchangeTokens;
@@ -228,6 +230,7 @@ public class GameUIManager implements DialogOwner {
             autoLoadPoller.close();
         }
         // TODO: terminate things like Discord
+        railsRoot.dispose();
 
         // clean up config items that are game play specific (ie like Discord)
         ConfigManager.getInstance().clearTransientConfig();
@@ -238,6 +241,7 @@ public class GameUIManager implements DialogOwner {
         // TODO: save relocation and resizing information of the FKStockChartWindow
 
         if (orWindow != null) orWindow.saveLayout();
+        GameSaver.awaitPendingSaves();
         System.exit(0);
     }
 
@@ -557,7 +561,7 @@ public class GameUIManager implements DialogOwner {
 
             } else if (SwitchableUIRound.class.isAssignableFrom(currentRoundType)) {
                 log.debug("UI entering switchable round type {}", currentRoundName);
-                statusWindow.pack();
+                SwingUtilities.invokeLater(statusWindow::pack);
             }
         }
 
@@ -887,12 +891,27 @@ public class GameUIManager implements DialogOwner {
 
     protected void autoSave(String newPlayer) {
         lastSavedFilename = savePrefix + "_" + saveDateTimeFormat.format(new Date()) + "_" + newPlayer + "." + saveExtension;
-        GameAction saveAction = new GameAction(getRoot(), GameAction.Mode.SAVE);
-        saveAction.setFilepath(saveDirectory + "/" + lastSavedFilename);
         log.debug("Autosaving to {}", lastSavedFilename);
-        processOnServer(saveAction);
 
-        saveAutoSavedFilename(lastSavedFilename);
+        // the save is written in the background, publish its name only afterwards
+        String savedFilename = lastSavedFilename;
+        saveInBackground(saveDirectory + "/" + lastSavedFilename)
+                .thenRun(() -> saveAutoSavedFilename(savedFilename));
+    }
+
+    /**
+     * Saves the game in the background, a failure is reported on the event dispatch thread
+     * @return future that completes after the file is written
+     */
+    protected CompletableFuture<File> saveInBackground(String filepath) {
+        CompletableFuture<File> save = railsRoot.getGameManager().saveGame(new File(filepath));
+        save.whenComplete((file, failure) -> {
+            if (failure == null) return;
+            String message = LocalText.getText("SaveFailed", GameSaver.getSaveFailure(failure).getMessage());
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(statusWindow, message,
+                    LocalText.getText("Message"), JOptionPane.ERROR_MESSAGE));
+        });
+        return save;
     }
 
     protected boolean saveAutoSavedFilename(String lastSavedFilename) {
@@ -997,7 +1016,18 @@ public class GameUIManager implements DialogOwner {
         }
     }
 
-    public void saveGame(GameAction saveAction) {
+    public void saveGame() {
+        String filepath = chooseSaveFile();
+        if (filepath != null) {
+            saveInBackground(filepath);
+        }
+    }
+
+    /**
+     * Lets the user choose the file to save to
+     * @return path of the chosen file, null if cancelled
+     */
+    protected String chooseSaveFile() {
         // copy latest report buffer entries to clipboard
         Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
         StringSelection reportText = new StringSelection(
@@ -1049,9 +1079,9 @@ public class GameUIManager implements DialogOwner {
                     providedName = filepath;
                 }
             }
-            saveAction.setFilepath(filepath);
-            processAction(saveAction);
+            return filepath;
         }
+        return null;
     }
 
     public void reloadGame(GameAction reloadAction) {
@@ -1091,17 +1121,26 @@ public class GameUIManager implements DialogOwner {
         log.debug("AutoSaveLoad parameters: status={} interval={}", autoSaveLoadStatus, autoSaveLoadPollingInterval);
 
         if (autoSaveLoadStatus != AutoLoadPoller.OFF) {
+            CompletableFuture<File> save = null;
             if (!gameWasLoaded) {
                 /* The first time (only) we use the normal save process,
                  * so the player can select a directory, and change
                  * the prefix if so desired.
                  */
-                GameAction saveAction = new GameAction(getRoot(), GameAction.Mode.SAVE);
                 saveSuffix = localPlayerName;
-                saveGame(saveAction);
-                lastSavedFilename = saveAction.getFilepath();
+                lastSavedFilename = chooseSaveFile();
+                if (lastSavedFilename != null) {
+                    save = saveInBackground(lastSavedFilename);
+                }
             }
-            if (lastSavedFilename != null) {
+            if (save != null) {
+                /* Now also save the "last saved file" file, once the game file is written */
+                String savedFilename = lastSavedFilename;
+                save.thenRun(() -> {
+                    boolean initialized = saveAutoSavedFilename(savedFilename);
+                    SwingUtilities.invokeLater(() -> autoSaveLoadInitialized = initialized);
+                });
+            } else if (lastSavedFilename != null) {
                 /* Now also save the "last saved file" file */
                 autoSaveLoadInitialized = saveAutoSavedFilename(lastSavedFilename);
             }
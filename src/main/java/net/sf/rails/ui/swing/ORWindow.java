@@ -252,13 +252,16 @@ public class ORWindow extends DockingFrame implements ActionPerformer {
         setMapWindowTitle (or);
 
         //rearrange layout only if no docking framework active
+        //(after the field updates of the last action)
         if (!isDockingFrameworkEnabled()) {
-            pack();
-            if (lastBounds != null) {
-                Rectangle newBounds = getBounds();
-                lastBounds.width = newBounds.width;
-                setBounds (lastBounds);
-            }
+            SwingUtilities.invokeLater(() -> {
+                pack();
+                if (lastBounds != null) {
+                    Rectangle newBounds = getBounds();
+                    lastBounds.width = newBounds.width;
+                    setBounds (lastBounds);
+                }
+            });
         }
 
         setVisible(true);
@@ -230,18 +230,31 @@ public class SplashWindow {
 
     }
 
+    /**
+     * Reports the progress within a step
+     * @param count number of items processed (e.g. actions replayed)
+     * @param total number of items to process (-1 if unknown)
+     */
+    public void notifyOfStep(String stepLabelConfigKey, int count, int total) {
+        //ignore if no visualization requested
+        if (myWin == null) return;
+
+        notifyOfStep(stepLabelConfigKey);
+        progressVisualizer.setStepProgress(count, total);
+    }
+
     /**
      * @param elapsedTime Refers to a duration normalized based on the expected durations
      * of the process steps.
      */
-    private synchronized void visualizeProgress(long elapsedTime, int currentStep) {
+    private synchronized void visualizeProgress(long elapsedTime, int currentStep, String stepCount) {
         //update current step (including description)
-        if (currentStep != this.currentStep) {
+        if (currentStep != this.currentStep || stepCount != null) {
             this.currentStep = currentStep;
             //only display step description for non-dummy steps
             if ( STEP_DURATION[currentStep].expectedDurationInMillis > 0) {
-                stepLabel.setText(LocalText.getText(
-                        STEP_DURATION[currentStep].labelConfigKey));
+                String text = LocalText.getText(STEP_DURATION[currentStep].labelConfigKey);
+                stepLabel.setText(stepCount == null ? text : text + " " + stepCount);
             }
         }
 
@@ -329,11 +342,16 @@ public class SplashWindow {
     private class ProgressVisualizer extends Thread {
         private long elapsedTime = 0;
         private int currentStep = 0;
+        private String stepCount = null;
         @Override
         public void run() {
             try {
                 while (!isInterrupted()) {
-                    visualizeProgress(elapsedTime, currentStep);
+                    String count;
+                    synchronized (this) {
+                        count = stepCount;
+                    }
+                    visualizeProgress(elapsedTime, currentStep, count);
 
                     sleep(PROGRESS_UPDATE_INTERVAL);
 
@@ -351,7 +369,23 @@ public class SplashWindow {
             } catch (InterruptedException e) {}
         }
 
+        private synchronized void setStepProgress(int count, int total) {
+            if (total > 0) {
+                stepCount = "(" + count + "/" + total + ")";
+                //move elapsed duration to the corresponding part of the current step
+                long stepStart = cumulativeDuration[currentStep-1];
+                long stepEnd = cumulativeDuration[currentStep];
+                elapsedTime = Math.max(elapsedTime,
+                        stepStart + (stepEnd - stepStart) * Math.min(count, total) / total);
+            } else {
+                stepCount = "(" + count + ")";
+            }
+        }
+
         private synchronized void setCurrentStep(int currentStep) {
+            if (currentStep != this.currentStep) {
+                stepCount = null;
+            }
             this.currentStep = currentStep;
             //System.out.println("Time: "+elapsedTime + " (Step: "+stepDuration[currentStep].labelConfigKey+")");
         }
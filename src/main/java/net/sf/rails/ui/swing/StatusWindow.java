@@ -606,7 +606,8 @@ public class StatusWindow extends JFrame implements ActionListener, KeyListener,
 
         if (currentRound instanceof EndOfGameRound) endOfGame();
 
-        pack();
+        // after the field updates of the last action
+        SwingUtilities.invokeLater(this::pack);
 
         toFront();
     }
@@ -725,7 +726,7 @@ public class StatusWindow extends JFrame implements ActionListener, KeyListener,
         } else if (executedAction instanceof GameAction) {
             switch (((GameAction) executedAction).getMode()) {
             case SAVE:
-                gameUIManager.saveGame((GameAction) executedAction);
+                gameUIManager.saveGame();
                 break;
             case RELOAD:
                 gameUIManager.reloadGame((GameAction) executedAction);
@@ -2,16 +2,17 @@ package net.sf.rails.ui.swing.elements;
 
 import com.google.common.base.MoreObjects;
 import net.sf.rails.game.model.ColorModel;
+import net.sf.rails.game.state.AsyncObserver;
 import net.sf.rails.game.state.Observable;
-import net.sf.rails.game.state.Observer;
 
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
+import java.util.concurrent.Executor;
 
 
 // TODO: Make the color and font options work again
-public class Field extends JLabel implements Observer {
+public class Field extends JLabel implements AsyncObserver {
 
     private static final long serialVersionUID = 1L;
 
@@ -20,9 +21,12 @@ public class Field extends JLabel implements Observer {
     private static final Color NORMAL_BG_COLOUR = Color.WHITE;
     private static final Color HIGHLIGHT_BG_COLOUR = new Color(255, 255, 80);
 
+    // all fields share one executor, thus their updates are coalesced in one queue
+    private static final Executor EDT_EXECUTOR = SwingUtilities::invokeLater;
+
     private Observable observable;
-    private Observer toolTipObserver;
-    private Observer colorObserver;
+    private AsyncObserver toolTipObserver;
+    private AsyncObserver colorObserver;
     private Color normalBgColour = NORMAL_BG_COLOUR;
 
     private boolean pull = false;
@@ -67,7 +71,8 @@ public class Field extends JLabel implements Observer {
 
     public void setToolTipModel(Observable toolTipModel) {
         final Observable storeModel = toolTipModel;
-        toolTipObserver = new Observer() {
+        // updated on the event dispatch thread like the text
+        toolTipObserver = new AsyncObserver() {
             @Override
             public void update(String text) {
                 setToolTipText(text);
@@ -77,6 +82,11 @@ public class Field extends JLabel implements Observer {
             public Observable getObservable() {
                 return storeModel;
             }
+
+            @Override
+            public Executor getExecutor() {
+                return EDT_EXECUTOR;
+            }
         };
         toolTipModel.addObserver(toolTipObserver);
         // initialize toolTip
@@ -85,7 +95,7 @@ public class Field extends JLabel implements Observer {
 
     public void setColorModel(ColorModel colorModel) {
         final ColorModel storeModel = colorModel;
-        colorObserver = new Observer() {
+        colorObserver = new AsyncObserver() {
             @Override
             public void update(String text) {
                 if (storeModel.getBackground() != null) {
@@ -102,6 +112,11 @@ public class Field extends JLabel implements Observer {
             public Observable getObservable() {
                 return storeModel;
             }
+
+            @Override
+            public Executor getExecutor() {
+                return EDT_EXECUTOR;
+            }
         };
         colorModel.addObserver(colorObserver);
         colorObserver.update(null);
@@ -186,6 +201,11 @@ public class Field extends JLabel implements Observer {
         return observable;
     }
 
+    @Override
+    public Executor getExecutor() {
+        return EDT_EXECUTOR;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
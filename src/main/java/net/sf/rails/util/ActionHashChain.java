@@ -0,0 +1,95 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * ActionHashChain maintains a rolling hash over a list of actions:
+ * the hash at index i covers the actions 0 to i,
+ * thus two lists with identical hash at index i share the same prefix.
+ * <p>
+ * Hashes are computed once for each action (on the serialized action) and
+ * then adopted from save files, thus the same action keeps its hash,
+ * even if it is serialized differently after a load.
+ */
+public class ActionHashChain {
+
+    private static final long SEED = 0x5241494c53L;
+
+    // actions covered by the chain (references only)
+    private final List<PossibleAction> actions = Lists.newArrayList();
+    private long[] chain = new long[0];
+
+    /**
+     * Brings the chain up to date with the actions,
+     * hashes are only computed for actions that changed since the last call
+     * @return the hash chain for the actions
+     */
+    public long[] update(List<PossibleAction> current) {
+        int common = commonPrefix(current);
+        long[] updated = Arrays.copyOf(chain, current.size());
+        long previous = common == 0 ? SEED : updated[common - 1];
+        for (int i = common; i < current.size(); i++) {
+            previous = hash(previous, current.get(i));
+            updated[i] = previous;
+        }
+        set(current, updated, current.size());
+        return updated.clone();
+    }
+
+    /**
+     * Adopts the hashes of a save file for the actions loaded from it
+     * @param loaded actions as executed after loading (prefix of the saved actions)
+     * @param savedChain hash chain stored in the file
+     */
+    public void adopt(List<PossibleAction> loaded, long[] savedChain) {
+        int length = Math.min(loaded.size(), savedChain.length);
+        set(loaded, Arrays.copyOf(savedChain, length), length);
+    }
+
+    private void set(List<PossibleAction> current, long[] values, int length) {
+        actions.clear();
+        actions.addAll(current.subList(0, length));
+        chain = values;
+    }
+
+    private int commonPrefix(List<PossibleAction> current) {
+        // search backwards, usually all known actions are unchanged
+        int common = Math.min(current.size(), actions.size()) - 1;
+        while (common >= 0 && current.get(common) != actions.get(common)) {
+            common--;
+        }
+        return common + 1;
+    }
+
+    /**
+     * @return true if both chains contain the same hash at the given number of actions
+     */
+    public static boolean matches(long[] chain, long[] other, int count) {
+        if (count == 0) return true;
+        return chain.length >= count && other.length >= count && chain[count - 1] == other[count - 1];
+    }
+
+    private static long hash(long previous, PossibleAction action) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(action);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot serialize action " + action, e);
+        }
+        return Hashing.murmur3_128().newHasher()
+                .putLong(previous)
+                .putBytes(bytes.toByteArray())
+                .hash().asLong();
+    }
+
+}
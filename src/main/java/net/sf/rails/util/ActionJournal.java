@@ -0,0 +1,375 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.GameData;
+import rails.game.action.PossibleAction;
+
+/**
+ * ActionJournal keeps the recovery data of a running game up to date
+ * by appending each executed action to a journal file.
+ * <p>
+ * The journal starts with a header frame that refers to the recovery file
+ * (autosave) written at the last compaction, followed by one frame per action.
+ * Each frame consists of length, CRC32 and the serialized payload and is forced to disk.
+ * An action frame stores its index in the list of executed actions,
+ * thus actions removed by undo are replaced when the journal is read.
+ * A frame without action (written after an undo) removes the actions from its index on.
+ * <p>
+ * Compaction writes a regular recovery file and restarts the journal.
+ * <p>
+ * The actions are serialized on the calling thread, all file operations run on the save thread
+ * (see GameSaver.afterPendingSaves), a failure is reported by the next call of record.
+ * Each game uses its own recovery file, the first game of the process uses the default name.
+ */
+public class ActionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionJournal.class);
+
+    public static final String JOURNAL_EXTENSION = ".journal";
+
+    public static final String COMPACT_INTERVAL = "save.recovery.compact_interval";
+    private static final int DEFAULT_COMPACT_INTERVAL = 50;
+
+    // upper bound for a frame, larger lengths indicate a corrupted journal
+    private static final int MAX_FRAME_LENGTH = 1 << 24;
+
+    // names of the recovery files used by the games of this process
+    private static final Set<String> claimedFileNames = Sets.newHashSet();
+
+    private final GameData gameData;
+    private final File recoveryFile;
+    private final File journalFile;
+    // true if the recovery file name has to be released on close
+    private final boolean claimed;
+
+    // only accessed on the save thread
+    private FileChannel channel;
+    // failure on the save thread, reported by the next call of record
+    private volatile IOException failure;
+
+    // actions contained in recovery file and journal (references only)
+    private final List<PossibleAction> recorded = Lists.newArrayList();
+    private boolean started;
+    private int appendedFrames;
+
+    /**
+     * Creates a journal with its own recovery file in the autosave folder
+     */
+    public ActionJournal(GameData gameData) {
+        this(gameData, new File(SystemOS.get().getConfigurationFolder(GameSaver.AUTOSAVE_FOLDER, true),
+                claimRecoveryFileName()), true);
+    }
+
+    /**
+     * Creates a journal for the given recovery file
+     */
+    ActionJournal(GameData gameData, File recoveryFile) {
+        this(gameData, recoveryFile, false);
+    }
+
+    private ActionJournal(GameData gameData, File recoveryFile, boolean claimed) {
+        this.gameData = gameData;
+        this.recoveryFile = recoveryFile;
+        this.journalFile = new File(recoveryFile.getPath() + JOURNAL_EXTENSION);
+        this.claimed = claimed;
+    }
+
+    /**
+     * @return the default recovery file name if it is not used by another game, otherwise a numbered one
+     */
+    static String claimRecoveryFileName() {
+        String prefix = StringUtils.removeEnd(GameSaver.AUTOSAVE_FILE, ".rails");
+        synchronized (claimedFileNames) {
+            String fileName = GameSaver.AUTOSAVE_FILE;
+            for (int number = 2; !claimedFileNames.add(fileName); number++) {
+                fileName = prefix + "_" + number + ".rails";
+            }
+            return fileName;
+        }
+    }
+
+    static void releaseRecoveryFileName(String fileName) {
+        synchronized (claimedFileNames) {
+            claimedFileNames.remove(fileName);
+        }
+    }
+
+    public File getRecoveryFile() {
+        return recoveryFile;
+    }
+
+    /**
+     * Records the executed actions,
+     * only actions that differ from the previous call are appended
+     * @param actions list of all executed actions, it must not change later (e.g. an immutable view)
+     * @throws IOException if an action cannot be serialized or a previous write has failed,
+     * the next call writes a new recovery file then
+     */
+    public void record(List<PossibleAction> actions) throws IOException {
+        IOException previous = failure;
+        if (previous != null) {
+            failure = null;
+            started = false;
+            throw previous;
+        }
+
+        int interval = Config.getInt(COMPACT_INTERVAL, DEFAULT_COMPACT_INTERVAL);
+        if (!started || appendedFrames >= interval) {
+            compact(actions);
+            return;
+        }
+
+        // find the part that is unchanged since the last call (usually all recorded actions)
+        int common = Math.min(actions.size(), recorded.size()) - 1;
+        while (common >= 0 && actions.get(common) != recorded.get(common)) {
+            common--;
+        }
+        common++;
+        if (common == actions.size() && common == recorded.size()) return;
+
+        List<byte[]> payloads = Lists.newArrayList();
+        if (common == actions.size()) {
+            // undo without a new action
+            payloads.add(actionPayload(common, null));
+        }
+        for (int index = common; index < actions.size(); index++) {
+            payloads.add(actionPayload(index, actions.get(index)));
+        }
+        appendedFrames += payloads.size();
+        recorded.subList(common, recorded.size()).clear();
+        recorded.addAll(actions.subList(common, actions.size()));
+
+        GameSaver.afterPendingSaves(() -> append(payloads));
+    }
+
+    /**
+     * Writes the recovery file and restarts the journal (both on the save thread)
+     */
+    private void compact(List<PossibleAction> actions) {
+        GameSaver gameSaver = new GameSaver(gameData, actions);
+        int base = actions.size();
+        recorded.clear();
+        recorded.addAll(actions);
+        appendedFrames = 0;
+        started = true;
+
+        GameSaver.afterPendingSaves(() -> {
+            closeChannel();
+            try {
+                gameSaver.autoSave(recoveryFile);
+
+                // write a new journal with the header only, then replace the previous journal
+                File tempFile = new File(journalFile.getPath() + ".tmp");
+                try (FileChannel tempChannel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    write(tempChannel, headerPayload(gameSaver.getDate(), base));
+                    tempChannel.force(true);
+                }
+                Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+                channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                log.debug("Compacted recovery journal {} at {} actions", journalFile, base);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    // runs on the save thread
+    private void append(List<byte[]> payloads) {
+        // the journal is broken, the next record call starts a new one
+        if (channel == null) return;
+        try {
+            for (byte[] payload : payloads) {
+                write(channel, payload);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // a partially written frame ends the journal
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Recovery journal {} failed", journalFile, e);
+        closeChannel();
+        failure = e;
+    }
+
+    /**
+     * Closes the journal after the pending writes, the files are kept for recovery
+     */
+    public void close() {
+        GameSaver.afterPendingSaves(() -> {
+            closeChannel();
+            if (claimed) {
+                releaseRecoveryFileName(recoveryFile.getName());
+            }
+        });
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close recovery journal", e);
+        }
+        channel = null;
+    }
+
+    private static void write(FileChannel channel, byte[] payload) throws IOException {
+        ByteBuffer buffer = frame(payload);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return the frame of the payload (length, CRC32, payload), ready for reading
+     */
+    static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] headerPayload(String date, int base) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(GameSaver.saveFileVersionID);
+            oos.writeObject(date);
+            oos.writeInt(base);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param action null to remove the actions from the index on
+     */
+    private static byte[] actionPayload(int index, PossibleAction action) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeInt(index);
+            oos.writeObject(action);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the journal that belongs to the given game file,
+     * null if the game file is not a recovery file with a journal
+     */
+    public static File getJournalFile(File gameFile) {
+        File journalFile = new File(gameFile.getPath() + JOURNAL_EXTENSION);
+        return journalFile.exists() ? journalFile : null;
+    }
+
+    /**
+     * Applies the actions of a journal to the actions loaded from the recovery file
+     * <p>
+     * The journal is ignored if it does not belong to the recovery file.
+     * Reading stops at the first incomplete or corrupted frame (e.g. after a crash during writing).
+     * @param journalFile to read
+     * @param loader that provides the game for deserialization of the actions
+     * @param date of the loaded recovery file
+     * @param actions loaded from the recovery file
+     * @return the complete list of actions
+     */
+    static List<PossibleAction> recover(File journalFile, GameLoader loader, String date,
+            List<PossibleAction> actions) throws IOException, ClassNotFoundException {
+        List<PossibleAction> result = Lists.newArrayList();
+        if (actions != null) {
+            result.addAll(actions);
+        }
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(journalFile.toPath()))) {
+            byte[] header = readFrame(in);
+            if (header == null) {
+                log.warn("Recovery journal {} has no valid header", journalFile);
+                return result;
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(header))) {
+                long fileVersionID = (Long) ois.readObject();
+                String journalDate = (String) ois.readObject();
+                int base = ois.readInt();
+                if (fileVersionID != GameSaver.saveFileVersionID || !journalDate.equals(date)
+                        || base != result.size()) {
+                    // recovery file was written after the journal, thus it is complete already
+                    log.info("Recovery journal {} does not match recovery file, ignored", journalFile);
+                    return result;
+                }
+            }
+
+            int count = 0;
+            byte[] payload;
+            while ((payload = readFrame(in)) != null) {
+                try (ObjectInputStream ois = new GameLoader.RailsObjectInputStream(loader,
+                        new ByteArrayInputStream(payload))) {
+                    int index = ois.readInt();
+                    PossibleAction action = (PossibleAction) ois.readObject();
+                    if (index > result.size()) {
+                        log.warn("Recovery journal {} skips actions at index {}", journalFile, index);
+                        break;
+                    }
+                    result.subList(index, result.size()).clear();
+                    if (action != null) {
+                        result.add(action);
+                        count++;
+                    }
+                }
+            }
+            log.debug("Recovered {} actions from journal {}", count, journalFile);
+        }
+        return result;
+    }
+
+    /**
+     * @return payload of the next frame, null if there is no complete and valid frame
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > MAX_FRAME_LENGTH) return null;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+}
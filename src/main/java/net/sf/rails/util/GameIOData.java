@@ -17,6 +17,7 @@ class GameIOData {
     private String date;
     private long fileVersionID;
     private List<PossibleAction> actions;
+    private long[] actionHashes;
     
     GameIOData(GameData gameData, String version, String date, Long fileVersionID, List<PossibleAction> actions) {
         this.gameData = gameData;
@@ -69,6 +70,14 @@ class GameIOData {
         return actions;
     }
 
+    void setActionHashes(long[] actionHashes) {
+        this.actionHashes = actionHashes;
+    }
+
+    long[] getActionHashes() {
+        return actionHashes;
+    }
+
     String metaDataAsText() {
         StringBuilder s = new StringBuilder();
         s.append("Rails saveVersion = ").append(version).append("\n");
@@ -20,10 +20,15 @@ import javax.swing.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.SortedMap;
+import java.util.zip.InflaterInputStream;
 
 /**
  * GameLoader is responsible to load a saved Rails game
@@ -32,6 +37,9 @@ public class GameLoader {
 
     private static final Logger log = LoggerFactory.getLogger(GameLoader.class);
 
+    // number of actions between progress updates of the splash window
+    private static final int PROGRESS_INTERVAL = 50;
+
     // game data
     private final GameIOData gameIOData = new GameIOData();
 
@@ -39,6 +47,19 @@ public class GameLoader {
     private ObjectInputStream ois = null;
     private RailsRoot railsRoot = null;
     private Exception exception = null;
+    private SplashWindow splashWindow = null;
+    private ReplayObserver replayObserver = null;
+    // index of the action that could not be read or replayed
+    private int failedAction = -1;
+    // index of the first action read by reloadGameFromFile
+    private int firstActionIndex = 0;
+
+    /**
+     * ReplayObserver is informed after each action replayed by the GameLoader
+     */
+    public interface ReplayObserver {
+        void actionReplayed(int index, PossibleAction action);
+    }
 
     public GameLoader() {
         // do nothing
@@ -64,7 +85,7 @@ public class GameLoader {
 
         // use gameLoader instance to start game
         GameLoader gameLoader = new GameLoader();
-        if (!gameLoader.createFromFile(gameFile)) {
+        if (!gameLoader.createFromFile(gameFile, splashWindow)) {
             Exception e = gameLoader.getException();
             log.error("Game load failed", e);
             if (e instanceof RailsReplayException) {
@@ -130,7 +151,9 @@ public class GameLoader {
         // FIXME: Removed the filename replacement expression
         // check if this still works
         // String filename = filePath.replaceAll(".*[/\\\\]", "");
-        ois = new RailsObjectInputStream(this, new FileInputStream(gameFile));
+        // the file might still be written by a background save
+        GameSaver.awaitPendingSaves();
+        ois = new RailsObjectInputStream(this, openSaveFile(gameFile));
 
         Object object = ois.readObject();
         String version;
@@ -211,91 +234,111 @@ public class GameLoader {
      * Convert the gameData
      * Requires successful load of gameData
      */
-    @SuppressWarnings("unchecked")
     public void convertGameData() throws Exception {
-        // Read game actions into gameData.listOfActions
-        // read next object in stream
-        Object actionObject = null;
-        while (true) { // Single-pass loop.
-            try {
-                actionObject = ois.readObject();
-            } catch (EOFException e) {
-                // Allow saved file at start of game (with no actions).
-                break;
+        List<PossibleAction> actions = Lists.newArrayList();
+        ActionReader reader = new ActionReader();
+        PossibleAction action;
+        while ((action = reader.read()) != null) {
+            actions.add(action);
+        }
+        gameIOData.setActions(actions);
+    }
 
-            }
-            if (actionObject instanceof List) {
-                // Until Rails 1.3: one List of PossibleAction
-                gameIOData.setActions((List<PossibleAction>) actionObject);
-            } else if (actionObject instanceof PossibleAction) {
-                List<PossibleAction> actions = Lists.newArrayList();
-                // Since Rails 1.3.1: separate PossibleActionsObjects
-                int n = 0;
-                while (actionObject instanceof PossibleAction) {
-                    actions.add((PossibleAction) actionObject);
-                    log.debug("Reading action {}: {}", ++n, actionObject.getClass().getSimpleName());
+    /**
+     * @return false if exception occurred
+     */
+    public boolean replayGame() {
+        List<PossibleAction> actions = gameIOData.getActions();
+        if (actions == null) {
+            actions = Collections.emptyList();
+        }
+        return replayGame(actions.iterator(), actions.size());
+    }
+
+    /**
+     * Replays the actions while they are read from the file,
+     * each action is decoded just before it is executed.
+     * Requires successful load of gameData and a started game
+     * @return false if exception occurred
+     */
+    public boolean replayGameFromStream() {
+        List<PossibleAction> actions = Lists.newArrayList();
+        gameIOData.setActions(actions);
+        ActionReader reader = new ActionReader();
+        Iterator<PossibleAction> stream = new Iterator<PossibleAction>() {
+            private PossibleAction next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && exception == null) {
                     try {
-                        actionObject = ois.readObject();
-                    } catch (EOFException e) {
-                        break;
+                        next = reader.read();
+                    } catch (Exception e) {
+                        log.error("Reading of game file interrupted after action {}", actions.size(), e);
+                        exception = e;
+                        failedAction = actions.size();
                     }
                 }
-                gameIOData.setActions(actions);
+                return next != null;
             }
-            break;
-        }
-        /**
-         todo: the code below is far from perfect, but robust
-         */
 
-        // at the end of file user comments are added as SortedMap
-        if (actionObject instanceof SortedMap) {
-            // FIXME (Rails2.0): Do something with userComments
-            //gameData.userComments = (SortedMap<Integer, String>) actionObject;
-            log.debug("file load: found user comments");
-        } else {
-            try {
-                Object object = ois.readObject();
-                if (object instanceof SortedMap) {
-                    // FIXME (Rails2.0): Do something with userComments
-                    // gameData.userComments = (SortedMap<Integer, String>) actionObject;
-                    log.debug("file load: found user comments");
+            @Override
+            public PossibleAction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-            } catch (IOException e) {
-                // continue without comments, if any IOException occurs
-                // sometimes not only the EOF Exception is raised
-                // but also the java.io.StreamCorruptedException: invalid type code
+                PossibleAction action = next;
+                next = null;
+                actions.add(action);
+                return action;
             }
-        }
-        ois.close();
-        ois = null;
+        };
+        boolean result = replayGame(stream, -1);
+        reader.close();
+        return result;
     }
 
     /**
+     * @param actions to replay
+     * @param total number of actions (-1 if unknown)
      * @return false if exception occurred
      */
-    public boolean replayGame() {
+    private boolean replayGame(Iterator<PossibleAction> actions, int total) {
         GameManager gameManager = railsRoot.getGameManager();
         log.debug("Starting to execute loaded actions");
         gameManager.setReloading(true);
 
         int count = 0;
-        if (gameIOData.getActions() != null) {
-            // set possible actions for first action
-            gameManager.getCurrentRound().setPossibleActions();
-            for (PossibleAction action : gameIOData.getActions()) {
-                count++;
-                if (!gameManager.processOnReload(action)) {
-                    log.warn("Replay of game interrupted at action "+count);
-                    String message = LocalText.getText("LoadInterrupted", count);
-                    exception = new RailsReplayException(message);
-                    break;
-                }
+        while (actions.hasNext()) {
+            PossibleAction action = actions.next();
+            if (count == 0) {
+                // set possible actions for first action
+                gameManager.getCurrentRound().setPossibleActions();
+            }
+            count++;
+            if (!gameManager.processOnReload(action)) {
+                log.warn("Replay of game interrupted at action "+count);
+                String message = LocalText.getText("LoadInterrupted", count);
+                exception = new RailsReplayException(message);
+                failedAction = count - 1;
+                break;
+            }
+            if (replayObserver != null) {
+                replayObserver.actionReplayed(count - 1, action);
+            }
+            if (splashWindow != null && count % PROGRESS_INTERVAL == 0) {
+                splashWindow.notifyOfStep(SplashWindow.STEP_LOAD_GAME, count, total);
             }
         }
 
         gameManager.setReloading(false);
 
+        if (exception == null) {
+            if (gameIOData.getActionHashes() != null) {
+                gameManager.adoptActionHashes(gameIOData.getActions(), gameIOData.getActionHashes(), 0);
+            }
+        }
+
         // FIXME (Rails2.0): CommentItems have to be replaced
         // ReportBuffer.setCommentItems(gameData.userComments);
 
@@ -305,10 +348,132 @@ public class GameLoader {
         return (exception == null);
     }
 
+    /**
+     * ActionReader reads the actions from the game file one by one.
+     * After the last action the trailing data (hashes, comments) is read
+     * and the file is closed.
+     */
+    private class ActionReader {
+
+        // Until Rails 1.3: one List of PossibleAction
+        private Iterator<PossibleAction> legacyActions;
+        private Object current;
+        private boolean finished;
+        private int count;
+
+        /**
+         * @return next action, null after the last action
+         */
+        @SuppressWarnings("unchecked")
+        private PossibleAction read() throws Exception {
+            if (finished) return null;
+            if (count == 0 && legacyActions == null) {
+                current = readObject();
+                if (current instanceof List) {
+                    legacyActions = ((List<PossibleAction>) current).iterator();
+                }
+            } else if (legacyActions == null) {
+                current = readObject();
+            }
+            if (legacyActions != null && legacyActions.hasNext()) {
+                count++;
+                return legacyActions.next();
+            }
+            if (legacyActions == null && current instanceof PossibleAction) {
+                // Since Rails 1.3.1: separate PossibleActionsObjects
+                log.debug("Reading action {}: {}", ++count, current.getClass().getSimpleName());
+                return (PossibleAction) current;
+            }
+            readTrailer(current);
+            finished = true;
+            return null;
+        }
+
+        /**
+         * @return next object, null at the end of file
+         */
+        private Object readObject() throws Exception {
+            try {
+                return ois.readObject();
+            } catch (EOFException e) {
+                // Allow saved file at start of game (with no actions).
+                return null;
+            }
+        }
+
+        /**
+         * @param object the first object after the actions
+         */
+        private void readTrailer(Object object) throws Exception {
+            // the hash chain follows the actions
+            if (object instanceof long[]) {
+                gameIOData.setActionHashes((long[]) object);
+                log.debug("file load: found hashes of {} actions", gameIOData.getActionHashes().length);
+                object = readTrailerObject();
+            }
+
+            /**
+             todo: the code below is far from perfect, but robust
+             */
+
+            // at the end of file user comments are added as SortedMap
+            if (object instanceof SortedMap) {
+                // FIXME (Rails2.0): Do something with userComments
+                //gameData.userComments = (SortedMap<Integer, String>) actionObject;
+                log.debug("file load: found user comments");
+            } else if (object != null) {
+                Object next = readTrailerObject();
+                if (next instanceof SortedMap) {
+                    // FIXME (Rails2.0): Do something with userComments
+                    // gameData.userComments = (SortedMap<Integer, String>) actionObject;
+                    log.debug("file load: found user comments");
+                }
+            }
+            close();
+        }
+
+        /**
+         * @return next object after the actions, null if there is none
+         */
+        private Object readTrailerObject() throws ClassNotFoundException {
+            try {
+                return ois.readObject();
+            } catch (IOException e) {
+                // continue without further objects, if any IOException occurs
+                // sometimes not only the EOF Exception is raised
+                // but also the java.io.StreamCorruptedException: invalid type code
+                // (e.g. at the start of the action index)
+                return null;
+            }
+        }
+
+        private void close() {
+            finished = true;
+            if (ois == null) return;
+            try {
+                ois.close();
+            } catch (IOException e) {
+                log.debug("Unable to close game file", e);
+            }
+            ois = null;
+        }
+    }
+
     public RailsRoot getRoot() {
         return railsRoot;
     }
 
+    public void setReplayObserver(ReplayObserver replayObserver) {
+        this.replayObserver = replayObserver;
+    }
+
+    /**
+     * @return index of the action that could not be read or replayed, -1 if none
+     */
+    public int getFailedAction() {
+        return failedAction;
+    }
+
     public Exception getException() {
         return exception;
     }
@@ -317,6 +482,13 @@ public class GameLoader {
         return gameIOData.getActions();
     }
 
+    /**
+     * @return hash chain of the actions stored in the file (null if not available)
+     */
+    public long[] getActionHashes() {
+        return gameIOData.getActionHashes();
+    }
+
     public String getGameDataAsText() {
         return gameIOData.metaDataAsText() + gameIOData.gameOptionsAsText() + gameIOData.playerNamesAsText();
     }
@@ -326,6 +498,7 @@ public class GameLoader {
      * @return false if exception occurred
      */
     public boolean createFromFile(File gameFile) {
+        File journalFile;
         try {
             // 1st: loadGameData
             loadGameData(gameFile);
@@ -334,7 +507,15 @@ public class GameLoader {
             railsRoot = RailsRoot.create(gameIOData.getGameData());
 
             // 3rd: convert game data (retrieve actions)
-            convertGameData();
+            // this is only required in advance for a recovery journal,
+            // otherwise the actions are read while replaying
+            journalFile = ActionJournal.getJournalFile(gameFile);
+            if (journalFile != null) {
+                convertGameData();
+                // add the actions recorded after the last write of the recovery file
+                gameIOData.setActions(ActionJournal.recover(journalFile, this,
+                        gameIOData.getDate(), gameIOData.getActions()));
+            }
 
             // 4th: start game
             railsRoot.start();
@@ -345,7 +526,42 @@ public class GameLoader {
             return false;
         }
         // 5th: replay game
-        return replayGame();
+        if (journalFile != null) {
+            return replayGame();
+        }
+        return replayGameFromStream();
+    }
+
+    /**
+     * @param gameFile
+     * @param splashWindow to show the progress of the replay
+     * @return false if exception occurred
+     */
+    public boolean createFromFile(File gameFile, SplashWindow splashWindow) {
+        this.splashWindow = splashWindow;
+        return createFromFile(gameFile);
+    }
+
+    /**
+     * Opens a save file for reading
+     * <p>
+     * Compressed files are detected by their header, otherwise the file is read as is.
+     * @return stream of the uncompressed data
+     */
+    public static InputStream openSaveFile(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+        byte[] header = new byte[GameSaver.COMPRESSED_MAGIC.length];
+        in.mark(header.length);
+        int length = 0;
+        int n;
+        while (length < header.length && (n = in.read(header, length, header.length - length)) > 0) {
+            length += n;
+        }
+        if (length == header.length && Arrays.equals(header, GameSaver.COMPRESSED_MAGIC)) {
+            return new BufferedInputStream(new InflaterInputStream(in), 1 << 16);
+        }
+        in.reset();
+        return in;
     }
 
     /**
@@ -362,14 +578,25 @@ public class GameLoader {
     public static class RailsObjectInputStream extends ObjectInputStream {
 
         private final GameLoader loader;
+        private final RailsRoot root;
 
         public RailsObjectInputStream(GameLoader loader, InputStream in) throws IOException {
             super(in);
             this.loader = loader;
+            this.root = null;
+        }
+
+        /**
+         * Reads objects of a running game (e.g. actions sent by the game engine)
+         */
+        public RailsObjectInputStream(RailsRoot root, InputStream in) throws IOException {
+            super(in);
+            this.loader = null;
+            this.root = root;
         }
 
         public RailsRoot getRoot() {
-            return loader.getRoot();
+            return root != null ? root : loader.getRoot();
         }
 
 //        @Override
@@ -388,14 +615,24 @@ public class GameLoader {
 //        }
     }
 
-    public boolean reloadGameFromFile(RailsRoot root, File file) {
+    /**
+     * Reads the actions of a save file to continue a running game with them
+     * <p>
+     * If the file has an action index and its hash chain matches the executed actions,
+     * only the actions after them are read (see getFirstActionIndex), otherwise all actions.
+     * @param executedHashes hash chain of the executed actions of the game
+     */
+    public boolean reloadGameFromFile(RailsRoot root, File file, long[] executedHashes) {
         try {
             railsRoot = root;
             // 1st: loadGameData
             loadGameData(file);
 
             // 2nd: convert game data (retrieve actions)
-            convertGameData();
+            if (!readNewActions(file, executedHashes)) {
+                firstActionIndex = 0;
+                convertGameData();
+            }
 
         } catch (Exception e) {
             log.debug("Exception during createFromFile in gameLoader ", e);
@@ -404,4 +641,38 @@ public class GameLoader {
         }
         return true;
     }
+
+    /**
+     * Reads the actions after the executed ones by the action index of the file
+     * @return false if the file has no index or hashes, or the hashes do not match
+     */
+    private boolean readNewActions(File file, long[] executedHashes) throws IOException {
+        int executed = executedHashes.length;
+        try (SaveFileReader reader = SaveFileReader.open(file, this)) {
+            long[] savedHashes = reader.getActionHashes();
+            if (savedHashes == null || reader.getActionCount() < executed
+                    || !ActionHashChain.matches(executedHashes, savedHashes, executed)) {
+                return false;
+            }
+            gameIOData.setActions(reader.getActions(executed, reader.getActionCount()));
+            gameIOData.setActionHashes(savedHashes);
+        } catch (IOException e) {
+            // e.g. files of older versions without action index
+            log.debug("Cannot read new actions of {} by index", file, e);
+            return false;
+        }
+        firstActionIndex = executed;
+        ois.close();
+        ois = null;
+        log.debug("Read {} new actions after {} executed actions", gameIOData.getActions().size(), executed);
+        return true;
+    }
+
+    /**
+     * @return index of the first action in getActions() after reloadGameFromFile
+     * (the previous actions were verified by their hashes and not read)
+     */
+    public int getFirstActionIndex() {
+        return firstActionIndex;
+    }
 }
@@ -1,19 +1,35 @@
 package net.sf.rails.util;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import net.sf.rails.common.Config;
 import net.sf.rails.common.ConfigItem;
 import net.sf.rails.common.ConfigManager;
@@ -37,13 +53,33 @@ public class GameSaver {
      */
     public static final long saveFileVersionID = SAVE_FILE_HEADER_VERSION_ID * PossibleAction.serialVersionUID;
 
+    // index of action offsets at the end of the file
+    static final int INDEX_INTERVAL = 32;
+    static final long INDEX_MAGIC = 0x5241494c53494458L; // RAILSIDX
+
+    // compressed files start with this header, followed by a deflate (zlib) stream
+    static final byte[] COMPRESSED_MAGIC = {'R', 'A', 'I', 'L', 'S', 'Z', 0, 1};
+    // compressed files are not readable by older versions, thus compression has to be activated
+    public static final String COMPRESSION_LEVEL = "save.compression.level";
+    private static final int DEFAULT_COMPRESSION_LEVEL = 0;
+
     // static data for autosave
     public static final String AUTOSAVE_FOLDER = "autosave";
     public static final String AUTOSAVE_FILE = "18xx_autosave.rails";
 
+    // saves are written one after another by a single background thread
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("game-save").setDaemon(true).build());
+
     // game data
     private final GameIOData gameIOData = new GameIOData();
 
+    // game play related options, collected at creation
+    private final Map<String, String> gameOptions = new HashMap<>();
+
+    // read at creation, as the file may be written on the save thread (without the game context)
+    private final int compressionLevel;
+
     /**
      * Creates a new game saver
      * @param gameData of the game to save
@@ -55,6 +91,19 @@ public class GameSaver {
         gameIOData.setDate(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
         gameIOData.setActions(actions);
         gameIOData.setFileVersionID(saveFileVersionID);
+        for ( Map.Entry<String, List<ConfigItem>> entry : ConfigManager.getInstance().getConfigSections().entrySet() ) {
+            for ( ConfigItem config : entry.getValue() ) {
+                if ( config.isGameRelated ) {
+                    String value = Config.get(config.name);
+                    if ( StringUtils.isNotBlank(value) ) {
+                        gameOptions.put(config.name, value);
+                    }
+                }
+            }
+        }
+        // level 0 writes uncompressed files (readable by older versions)
+        compressionLevel = Math.max(0, Math.min(Deflater.BEST_COMPRESSION,
+                Config.getInt(COMPRESSION_LEVEL, DEFAULT_COMPRESSION_LEVEL)));
     }
 
     /**
@@ -65,6 +114,20 @@ public class GameSaver {
         this(gameLoader.getRoot().getGameData(), gameLoader.getActions());
     }
 
+    /**
+     * @param actionHashes hash chain of the actions to store after the actions (null for none)
+     */
+    public void setActionHashes(long[] actionHashes) {
+        gameIOData.setActionHashes(actionHashes);
+    }
+
+    /**
+     * @return the save date written to the file
+     */
+    String getDate() {
+        return gameIOData.getDate();
+    }
+
     /**
      * Stores the game to a file
      * @param file to save game to
@@ -72,34 +135,124 @@ public class GameSaver {
     public void saveGame(File file) throws IOException {
         log.info("Saving to {}", file.getAbsoluteFile());
 
-        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file.toPath()))) {
-            oos.writeObject(gameIOData.getVersion());
-            oos.writeObject(gameIOData.getDate());
-            oos.writeObject(gameIOData.getFileVersionID());
-            oos.writeObject(gameIOData.getGameData().getGameName());
-            oos.writeObject(gameIOData.getGameData().getGameOptions().getOptions());
-            // save game play related options
-            Map<String, String> gameOptions = new HashMap<>();
-            for ( Map.Entry<String, List<ConfigItem>> entry : ConfigManager.getInstance().getConfigSections().entrySet() ) {
-                for ( ConfigItem config : entry.getValue() ) {
-                    if ( config.isGameRelated ) {
-                        String value = Config.get(config.name);
-                        if ( StringUtils.isNotBlank(value) ) {
-                            gameOptions.put(config.name, Config.get(config.name));
-                        }
+        Deflater deflater = compressionLevel > 0 ? new Deflater(compressionLevel) : null;
+        try (FileOutputStream fileOut = new FileOutputStream(file)) {
+            DeflaterOutputStream deflaterOut = null;
+            OutputStream dataOut = fileOut;
+            if ( deflater != null ) {
+                fileOut.write(COMPRESSED_MAGIC);
+                deflaterOut = new DeflaterOutputStream(fileOut, deflater, 1 << 16);
+                dataOut = deflaterOut;
+            }
+            // offsets of the index refer to the uncompressed data
+            CountingOutputStream counter = new CountingOutputStream(dataOut);
+            BufferedOutputStream out = new BufferedOutputStream(counter);
+            try (ObjectOutputStream oos = new RailsObjectOutputStream(out)) {
+                oos.writeObject(gameIOData.getVersion());
+                oos.writeObject(gameIOData.getDate());
+                oos.writeObject(gameIOData.getFileVersionID());
+                oos.writeObject(gameIOData.getGameData().getGameName());
+                oos.writeObject(gameIOData.getGameData().getGameOptions().getOptions());
+                // save game play related options
+                if ( !gameOptions.isEmpty() ) {
+                    oos.writeObject(gameOptions);
+                }
+
+                oos.writeObject(gameIOData.getGameData().getPlayers());
+                // each index entry starts with a reset, thus the following actions can be read without the previous ones
+                List<Long> offsets = new ArrayList<>();
+                int index = 0;
+                for ( PossibleAction action : gameIOData.getActions() ) {
+                    if ( index++ % INDEX_INTERVAL == 0 ) {
+                        oos.reset();
+                        oos.flush();
+                        offsets.add(counter.getCount());
                     }
+                    oos.writeObject(action);
+                }
+                // the hashes (even if empty) separate the actions from the index
+                long[] actionHashes = gameIOData.getActionHashes();
+                oos.writeObject(actionHashes != null ? actionHashes : new long[0]);
+                oos.flush();
+
+                // the index of action offsets follows the serialized objects, read from the end of the file
+                DataOutputStream indexOut = new DataOutputStream(out);
+                for ( long offset : offsets ) {
+                    indexOut.writeLong(offset);
                 }
+                indexOut.writeInt(gameIOData.getActions().size());
+                indexOut.writeInt(INDEX_INTERVAL);
+                indexOut.writeInt(offsets.size());
+                indexOut.writeLong(INDEX_MAGIC);
+                indexOut.flush();
+                if ( deflaterOut != null ) {
+                    deflaterOut.finish();
+                }
+                fileOut.getFD().sync();
             }
-            if ( !gameOptions.isEmpty() ) {
-                oos.writeObject(gameOptions);
+        } finally {
+            if ( deflater != null ) {
+                deflater.end();
             }
+        }
+        log.debug("File save successful");
+    }
 
-            oos.writeObject(gameIOData.getGameData().getPlayers());
-            for ( PossibleAction action : gameIOData.getActions() ) {
-                oos.writeObject(action);
+    /**
+     * Stores the game to a file in the background
+     * <p>
+     * The actions (and all other data) must not change after the call,
+     * e.g. use the immutable view of the executed actions.
+     * @param file to save game to
+     * @return future that completes with the file after it is written and synced
+     */
+    public CompletableFuture<File> saveGameInBackground(File file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                saveGame(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+            return file;
+        }, writer);
+    }
+
+    /**
+     * @param failure of a background save (as passed to the stages of its future)
+     * @return the cause of the failure, e.g. the IOException
+     */
+    public static Throwable getSaveFailure(Throwable failure) {
+        Throwable cause = failure;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Runs a task after all saves started before have finished (on the save thread)
+     * @param task to run, e.g. follow-up file operations
+     */
+    public static CompletableFuture<Void> afterPendingSaves(Runnable task) {
+        return CompletableFuture.runAsync(task, writer);
+    }
+
+    /**
+     * Waits until all saves started before have finished
+     */
+    public static void awaitPendingSaves() {
+        Future<?> marker = writer.submit(() -> { });
+        try {
+            marker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // empty task, cannot happen
+            log.error("Waiting for pending saves failed", e);
         }
-        log.debug("File save successful");
     }
 
     /**
@@ -108,7 +261,16 @@ public class GameSaver {
      */
     public void autoSave() throws IOException  {
         File directory = SystemOS.get().getConfigurationFolder(AUTOSAVE_FOLDER, true);
-        String fileName = AUTOSAVE_FILE;
+        autoSave(new File(directory, AUTOSAVE_FILE));
+    }
+
+    /**
+     * stores game to the given recovery file, the previous one is kept as backup
+     * @throws IOException
+     */
+    public void autoSave(File file) throws IOException  {
+        File directory = file.getParentFile();
+        String fileName = file.getName();
 
         // create temporary new save file
         File tempFile = new File(directory, fileName + ".tmp");
@@ -148,4 +310,30 @@ public class GameSaver {
         }
         log.debug("Renamed to recovery file, path = {}", recoveryFile.getPath());
     }
+
+    /**
+     * A subclass of ObjectOutputStream for Rails
+     * <p>
+     * Equal strings (ids of players, companies, hexes, trains...) are written only once
+     * between two resets of the stream, all further occurrences are written as back references.
+     * As GameSaver resets the stream at each index entry, each id is written once per INDEX_INTERVAL actions.
+     * The result is a standard serialization stream, thus no changes are required for loading.
+     */
+    public static class RailsObjectOutputStream extends ObjectOutputStream {
+
+        private final Map<String, String> strings = new HashMap<>();
+
+        public RailsObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof String) {
+                return strings.computeIfAbsent((String) obj, s -> s);
+            }
+            return obj;
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package net.sf.rails.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+/**
+ * SaveArchive stores save files as manifests of content-addressed chunks.
+ * <p>
+ * The uncompressed content of a save file is split at the offsets of its action index
+ * (see GameSaver): each group of actions starts with a reset of the serialization stream,
+ * thus its bytes only depend on the actions of the group.
+ * Consecutive saves of a game share all groups but the last one, which are stored only once.
+ * <p>
+ * Each chunk is stored deflated in chunks/xx/hash, where hash is the SHA-256 of its content.
+ * The manifest of a save lists the hashes of its chunks and is stored as name.manifest.
+ * Restoring a save concatenates its chunks, which reproduces the uncompressed save file.
+ */
+public class SaveArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(SaveArchive.class);
+
+    public static final String MANIFEST_EXTENSION = ".manifest";
+
+    private static final String MANIFEST_HEADER = "RailsArchive 1";
+    private static final String CHUNK_DIRECTORY = "chunks";
+
+    private final File directory;
+
+    public SaveArchive(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stores a save file in the archive, the save file itself is not changed
+     * @param saveFile to store
+     * @return manifest written for the save file
+     */
+    public File store(File saveFile) throws IOException {
+        byte[] data;
+        try (InputStream in = GameLoader.openSaveFile(saveFile)) {
+            data = ByteStreams.toByteArray(in);
+        }
+
+        // chunk boundaries (files without index are stored as one chunk)
+        long[] offsets = SaveFileReader.readIndex(ByteBuffer.wrap(data));
+        List<Integer> boundaries = Lists.newArrayList(0);
+        if (offsets != null) {
+            for (long offset : offsets) {
+                if (offset > boundaries.get(boundaries.size() - 1)) {
+                    boundaries.add((int) offset);
+                }
+            }
+        }
+        boundaries.add(data.length);
+
+        List<String> manifest = Lists.newArrayList(MANIFEST_HEADER, String.valueOf(data.length));
+        int written = 0;
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            byte[] chunk = Arrays.copyOfRange(data, boundaries.get(i), boundaries.get(i + 1));
+            String hash = Hashing.sha256().hashBytes(chunk).toString();
+            if (storeChunk(hash, chunk)) {
+                written++;
+            }
+            manifest.add(hash);
+        }
+
+        File manifestFile = new File(directory, saveFile.getName() + MANIFEST_EXTENSION);
+        File tempFile = new File(directory, manifestFile.getName() + ".tmp");
+        Files.write(tempFile.toPath(), manifest, StandardCharsets.UTF_8);
+        Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.debug("Archived {} as {} chunks, {} new", saveFile, manifest.size() - 2, written);
+        return manifestFile;
+    }
+
+    /**
+     * @return true if the chunk was not stored before
+     */
+    private boolean storeChunk(String hash, byte[] chunk) throws IOException {
+        File chunkFile = getChunkFile(hash);
+        if (chunkFile.exists()) return false;
+
+        Files.createDirectories(chunkFile.getParentFile().toPath());
+        File tempFile = new File(chunkFile.getParentFile(), hash + ".tmp");
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+            out.write(chunk);
+        }
+        Files.move(tempFile.toPath(), chunkFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private File getChunkFile(String hash) {
+        return new File(new File(new File(directory, CHUNK_DIRECTORY), hash.substring(0, 2)), hash);
+    }
+
+    /**
+     * @return names of all archived save files
+     */
+    public List<String> getSaveNames() {
+        List<String> names = Lists.newArrayList();
+        File[] files = directory.listFiles();
+        if (files == null) return names;
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(MANIFEST_EXTENSION)) {
+                String name = file.getName();
+                names.add(name.substring(0, name.length() - MANIFEST_EXTENSION.length()));
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /**
+     * Reconstructs an archived save file (uncompressed)
+     * @param name of the archived save file
+     * @param target file to write
+     * @throws IOException if the manifest or a chunk is missing or corrupted
+     */
+    public void restore(String name, File target) throws IOException {
+        File manifestFile = new File(directory, name + MANIFEST_EXTENSION);
+        List<String> manifest = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+        if (manifest.size() < 2 || !MANIFEST_HEADER.equals(manifest.get(0))) {
+            throw new IOException("Invalid archive manifest " + manifestFile);
+        }
+        long length = Long.parseLong(manifest.get(1));
+
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(target.toPath())) {
+            for (String hash : manifest.subList(2, manifest.size())) {
+                byte[] chunk;
+                try (InputStream in = new InflaterInputStream(Files.newInputStream(getChunkFile(hash).toPath()))) {
+                    chunk = ByteStreams.toByteArray(in);
+                }
+                if (!Hashing.sha256().hashBytes(chunk).toString().equals(hash)) {
+                    throw new IOException("Corrupted archive chunk " + hash);
+                }
+                out.write(chunk);
+                written += chunk.length;
+            }
+        }
+        if (written != length) {
+            throw new IOException("Restored " + written + " bytes of " + length + " for " + name);
+        }
+        log.debug("Restored {} to {}", name, target);
+    }
+
+}
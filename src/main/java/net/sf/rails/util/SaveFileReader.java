@@ -0,0 +1,205 @@
+package net.sf.rails.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import rails.game.action.PossibleAction;
+
+/**
+ * SaveFileReader provides random access to the actions of a save file by their index.
+ * <p>
+ * It requires the index of action offsets written at the end of the file by GameSaver.
+ * Each index entry points to the start of a group of actions that can be read
+ * without the previous part of the file, thus only the actions up to the requested one
+ * within that group are decoded.
+ * <p>
+ * Uncompressed files are mapped, compressed files are inflated into memory once.
+ */
+public class SaveFileReader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SaveFileReader.class);
+
+    // size of the fixed part at the end of the file
+    private static final int FOOTER_SIZE = 3 * Integer.BYTES + Long.BYTES;
+
+    private final File file;
+    private final GameLoader loader;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private final int actionCount;
+    private final int interval;
+    private final long[] offsets;
+
+    // stream header for each decoding stream (magic and version)
+    private final byte[] streamHeader;
+
+    private SaveFileReader(File file, GameLoader loader) throws IOException {
+        this.file = file;
+        this.loader = loader;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.buffer = isCompressed(mapped) ? inflate(file) : mapped;
+
+        offsets = readIndex(buffer);
+        if (offsets == null) {
+            channel.close();
+            throw new IOException("Save file " + file + " contains no action index");
+        }
+        int footer = buffer.capacity() - FOOTER_SIZE;
+        actionCount = buffer.getInt(footer);
+        interval = buffer.getInt(footer + Integer.BYTES);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        new ObjectOutputStream(header).close();
+        streamHeader = header.toByteArray();
+        log.debug("Opened {} with index of {} actions", file, actionCount);
+    }
+
+    /**
+     * @param data uncompressed content of a save file
+     * @return offsets of the index at the end of the data, null if there is no index
+     */
+    static long[] readIndex(ByteBuffer data) {
+        int footer = data.capacity() - FOOTER_SIZE;
+        if (footer < 0 || data.getLong(footer + 3 * Integer.BYTES) != GameSaver.INDEX_MAGIC) {
+            return null;
+        }
+        int entries = data.getInt(footer + 2 * Integer.BYTES);
+        int position = footer - entries * Long.BYTES;
+        if (entries < 0 || position < 0) return null;
+        long[] offsets = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            offsets[i] = data.getLong(position + i * Long.BYTES);
+        }
+        return offsets;
+    }
+
+    private static boolean isCompressed(ByteBuffer data) {
+        byte[] header = new byte[GameSaver.COMPRESSED_MAGIC.length];
+        if (data.capacity() < header.length) return false;
+        data.duplicate().get(header);
+        return Arrays.equals(header, GameSaver.COMPRESSED_MAGIC);
+    }
+
+    private static ByteBuffer inflate(File file) throws IOException {
+        try (InputStream in = GameLoader.openSaveFile(file)) {
+            return ByteBuffer.wrap(ByteStreams.toByteArray(in));
+        }
+    }
+
+    /**
+     * Opens a save file for random access
+     * @param file save file written with an action index
+     * @param loader that provides the game for deserialization of the actions
+     * @throws IOException if the file cannot be read or has no index
+     */
+    public static SaveFileReader open(File file, GameLoader loader) throws IOException {
+        return new SaveFileReader(file, loader);
+    }
+
+    /**
+     * @return number of actions in the file
+     */
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    /**
+     * @return action at the given index
+     */
+    public PossibleAction getAction(int index) throws IOException {
+        return getActions(index, index + 1).get(0);
+    }
+
+    /**
+     * @return actions in the range [from, to)
+     */
+    public List<PossibleAction> getActions(int from, int to) throws IOException {
+        if (from < 0 || to > actionCount || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + " of " + actionCount + " actions");
+        }
+        List<PossibleAction> actions = Lists.newArrayListWithCapacity(to - from);
+        int index = from;
+        while (index < to) {
+            int entry = index / interval;
+            try (ObjectInputStream ois = openStream(offsets[entry])) {
+                // decode the group up to the end of the range
+                int last = Math.min(to, (entry + 1) * interval);
+                for (int i = entry * interval; i < last; i++) {
+                    PossibleAction action = (PossibleAction) ois.readObject();
+                    if (i >= index) {
+                        actions.add(action);
+                    }
+                }
+                index = last;
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot decode action " + index + " of " + file, e);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Reads the hash chain stored after the actions, only the last group of actions is decoded
+     * @return hash chain of the actions, null if the file contains no actions or no hashes
+     */
+    public long[] getActionHashes() throws IOException {
+        // without actions the hashes follow the header, which is not indexed
+        if (offsets.length == 0) return null;
+        int entry = offsets.length - 1;
+        try (ObjectInputStream ois = openStream(offsets[entry])) {
+            for (int i = entry * interval; i < actionCount; i++) {
+                ois.readObject();
+            }
+            Object trailer = ois.readObject();
+            return trailer instanceof long[] ? (long[]) trailer : null;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot decode action hashes of " + file, e);
+        }
+    }
+
+    private ObjectInputStream openStream(long offset) throws IOException {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) offset);
+        InputStream data = new InputStream() {
+            @Override
+            public int read() {
+                return slice.hasRemaining() ? slice.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!slice.hasRemaining()) return -1;
+                int n = Math.min(len, slice.remaining());
+                slice.get(b, off, n);
+                return n;
+            }
+        };
+        return new GameLoader.RailsObjectInputStream(loader,
+                new SequenceInputStream(new ByteArrayInputStream(streamHeader), data));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -140,6 +140,12 @@ public class BuyCertificate extends PossibleAction {
         this.from = root.getPortfolioManager().getPortfolioByUniqueName(from);
     }
 
+    @Override
+    public Object getOptionKey() {
+        // price and share can differ in subclasses, the company is always compared
+        return company;
+    }
+
     @Override
     protected boolean equalsAs(PossibleAction pa, boolean asOption) {
         // identity always true
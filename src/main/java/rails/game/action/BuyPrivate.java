@@ -61,6 +61,11 @@ public class BuyPrivate extends PossibleORAction {
         this.price = price;
     }
 
+    @Override
+    public Object getOptionKey() {
+        return privateCompany;
+    }
+
     @Override
     protected boolean equalsAs(PossibleAction pa, boolean asOption) {
         // identity always true
@@ -268,6 +268,11 @@ public class BuyTrain extends PossibleORAction {
 
 
 
+    @Override
+    public Object getOptionKey() {
+        return getTrain();
+    }
+
     // TODO: Check for and add the missing attributes
     @Override
     protected boolean equalsAs(PossibleAction pa, boolean asOption) {
@@ -142,6 +142,17 @@ public abstract class PossibleAction implements ChangeAction, Serializable {
         return equalsAs(pa, true);
     }
 
+    /**
+     * Key of the choice options, used by PossibleActions to find the offered actions
+     * that can be equal as option to an incoming action.
+     * <p>Actions that are equal as option must have equal keys, thus subclasses
+     * return an attribute that equalsAs compares always (e.g. the company).
+     * @return null if the class has no key, then all offered actions of the class are compared
+     */
+    public Object getOptionKey() {
+        return null;
+    }
+
     /**
      * Compare the chosen actions of two action objects.
      * In other words: the client-set (posterior) attributes must be compared,
@@ -1,20 +1,29 @@
 package rails.game.action;
 
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.ListMultimap;
 
 /**
  * This class manages the actions that the current user can execute at any point
  * in time. Each possible action is represented by an instance of a subclass of
  * PossibleAction. The complete set is stored in an ArrayList.
+ * <p>
+ * For validation the actions are indexed by class and option key (see PossibleAction.getOptionKey),
+ * thus only the offered actions with the same key are compared.
  */
 public class PossibleActions {
 
     private final List<PossibleAction> actions = Lists.newArrayList();
 
+    // index by class and option key
+    private final ListMultimap<List<Object>, PossibleAction> index = ArrayListMultimap.create();
+
     private PossibleActions() { }
 
     public static PossibleActions create() {
@@ -23,22 +32,34 @@ public class PossibleActions {
 
     public void clear() {
         actions.clear();
+        index.clear();
     }
 
     public void add(PossibleAction action) {
         actions.add(action);
+        index.put(indexKey(action), action);
     }
 
     public void addFirst (PossibleAction action) {
         actions.add (0, action);
+        index.put(indexKey(action), action);
     }
 
     public void remove(PossibleAction action) {
-        actions.remove(action);
+        if (actions.remove(action)) {
+            index.remove(indexKey(action), action);
+        }
     }
 
     public void addAll(List<? extends PossibleAction> actions) {
-        this.actions.addAll(actions);
+        for (PossibleAction action : actions) {
+            add(action);
+        }
+    }
+
+    private static List<Object> indexKey(PossibleAction action) {
+        if (action == null) return Arrays.asList(null, null);
+        return Arrays.asList(action.getClass(), action.getOptionKey());
     }
 
     public boolean contains(Class<? extends PossibleAction> clazz) {
@@ -95,7 +116,9 @@ public class PossibleActions {
         }
 
         // Check if action occurs in the list of possible actions
-        for (PossibleAction action : actions) {
+        // (only actions with the same class and option key can be equal as option)
+        if (checkedAction == null) return false;
+        for (PossibleAction action : index.get(indexKey(checkedAction))) {
             if (action.equalsAsOption(checkedAction)) {
                 return true;
             }
@@ -97,6 +97,11 @@ public class SellShares extends PossibleAction {
         return presidentExchange;
     }
 
+    @Override
+    public Object getOptionKey() {
+        return company;
+    }
+
     @Override
     protected boolean equalsAs(PossibleAction pa, boolean asOption) {
         // identity always true
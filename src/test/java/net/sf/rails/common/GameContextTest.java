@@ -0,0 +1,84 @@
+package net.sf.rails.common;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GameContextTest {
+
+    private static final String KEY = "test.context.value";
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    @Test
+    public void testContextOverridesProcess() throws Exception {
+        Config.set(KEY, "process");
+        GameContext context = new GameContext();
+
+        assertEquals("process", context.call(() -> Config.get(KEY)));
+        context.call(() -> {
+            Config.set(KEY, "game");
+            return null;
+        });
+        assertEquals("game", context.call(() -> Config.get(KEY)));
+        // outside of the context the value of the process is unchanged
+        assertEquals("process", Config.get(KEY));
+        assertNull(GameContext.current());
+    }
+
+    @Test
+    public void testMoneyFormatOfContext() throws Exception {
+        GameContext context = new GameContext();
+        context.getConfig().put("money_format", "@ kr");
+
+        assertEquals("100 kr", context.call(() -> MoneyFormatter.money(100)));
+        // other games keep the format of the process
+        assertEquals(Config.get("money_format").replace("@", "100"), MoneyFormatter.money(100));
+
+        GameContext other = new GameContext();
+        other.getConfig().put("money_format", "@ SEK");
+        assertEquals("100 SEK", other.get(() -> MoneyFormatter.money(100)));
+        assertEquals("100 kr", context.call(() -> MoneyFormatter.money(100)));
+    }
+
+    @Test
+    public void testParallelContexts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch bothSet = new CountDownLatch(2);
+        try {
+            Future<String> first = executor.submit(() -> readOwnValue(new GameContext(), "first", bothSet));
+            Future<String> second = executor.submit(() -> readOwnValue(new GameContext(), "second", bothSet));
+            assertEquals("first", first.get(10, TimeUnit.SECONDS));
+            assertEquals("second", second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String readOwnValue(GameContext context, String value, CountDownLatch bothSet)
+            throws Exception {
+        return context.call(() -> {
+            Config.set(KEY, value);
+            bothSet.countDown();
+            bothSet.await(10, TimeUnit.SECONDS);
+            return Config.get(KEY);
+        });
+    }
+
+}
@@ -0,0 +1,89 @@
+package net.sf.rails.common;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import net.sf.rails.game.GameEngine;
+import rails.game.action.GameAction;
+import rails.game.action.PossibleAction;
+
+public class ServerToClientCodecTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    private GameEngine engine;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        engine = GameEngine.load(GAME_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        engine.getUpdate();
+        // an action of the round changes models and adds report lines
+        PossibleAction action = engine.getPossibleActions().stream()
+                .filter(possible -> !(possible instanceof GameAction)).findFirst().get();
+        assertThat(engine.submit(action)).isEmpty();
+        ServerToClient update = engine.getUpdate();
+        assertThat(update.getModelTexts()).isNotEmpty();
+        assertThat(update.getPossibleActions()).isNotEmpty();
+        assertThat(update.getReportLines()).isNotEmpty();
+
+        ServerToClient decoded = ServerToClientCodec.decode(ServerToClientCodec.encode(update), engine.getRoot());
+        assertThat(decoded.getSequence()).isEqualTo(update.getSequence());
+        assertThat(decoded.getModelTexts()).isEqualTo(update.getModelTexts());
+        assertThat(decoded.getReportStart()).isEqualTo(update.getReportStart());
+        assertThat(decoded.getReportLines()).isEqualTo(update.getReportLines());
+
+        List<PossibleAction> actions = decoded.getPossibleActions();
+        assertThat(actions).hasSize(update.getPossibleActions().size());
+        for (int i = 0; i < actions.size(); i++) {
+            assertThat(actions.get(i).equalsAsOption(update.getPossibleActions().get(i))).isTrue();
+        }
+    }
+
+    @Test
+    public void testDecodeWithoutGame() throws IOException {
+        ServerToClient update = new ServerToClient(7, ImmutableMap.of("/model", "text äöü", "/empty", ""),
+                engine.getPossibleActions(), 3, ImmutableList.of("line", ""));
+
+        ServerToClient decoded = ServerToClientCodec.decode(ServerToClientCodec.encode(update), null);
+        assertThat(decoded.getSequence()).isEqualTo(7);
+        assertThat(decoded.getModelTexts()).isEqualTo(update.getModelTexts());
+        assertThat(decoded.getReportStart()).isEqualTo(3);
+        assertThat(decoded.getReportLines()).containsExactly("line", "");
+        // the possible actions require the game
+        assertThat(decoded.getPossibleActions()).isEmpty();
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        byte[] data = ServerToClientCodec.encode(new ServerToClient());
+        data[0]++;
+        ServerToClientCodec.decode(data, null);
+    }
+
+}
@@ -0,0 +1,46 @@
+package net.sf.rails.common.parser;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.sf.rails.common.GameOption;
+import net.sf.rails.common.GameOptionsSet;
+
+public class TagTest {
+
+    private static final String FILE = "Game.xml";
+    private static final String DIRECTORY = "data/1830";
+
+    private static GameOptionsSet options(int players, String variant, String seed) {
+        GameOptionsSet gameOptions = GameOptionsSet.builder().withNumberOfPlayers(players).build();
+        gameOptions.getOptions().put("Variant", variant);
+        gameOptions.getOptions().put("TwoPlayersCertLimit70Percent", "no");
+        gameOptions.getOptions().put("UnlimitedTopTrains_D", "no");
+        gameOptions.getOptions().put(GameOption.RANDOM_SEED, seed);
+        return gameOptions;
+    }
+
+    private static Tag find(GameOptionsSet gameOptions) throws ConfigurationException {
+        return Tag.findCachedTopTagInFile(FILE, DIRECTORY, XMLTags.COMPONENT_MANAGER_ELEMENT_ID, gameOptions);
+    }
+
+    @Test
+    public void testOptionsNotReadByFile() throws ConfigurationException {
+        Tag first = find(options(4, "Basegame", "1"));
+        // the random seed and unknown options are not read by the file
+        GameOptionsSet other = options(4, "Basegame", "2");
+        other.getOptions().put("SomeOtherOption", "yes");
+        assertSame(first, find(other));
+    }
+
+    @Test
+    public void testOptionsReadByFile() throws ConfigurationException {
+        Tag basegame = find(options(4, "Basegame", "1"));
+        Tag coalfields = find(options(4, "Coalfields", "1"));
+        assertNotSame(basegame, coalfields);
+        assertSame(coalfields, find(options(4, "Coalfields", "3")));
+        assertSame(basegame, find(options(4, "Basegame", "3")));
+    }
+
+}
@@ -0,0 +1,233 @@
+package net.sf.rails.game;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.ReportBuffer;
+import net.sf.rails.common.ReportSet;
+import net.sf.rails.common.ServerToClient;
+import net.sf.rails.util.ActionHashChain;
+import net.sf.rails.util.GameLoader;
+import net.sf.rails.util.GameSaver;
+import rails.game.action.GameAction;
+import rails.game.action.PossibleAction;
+
+public class GameEngineTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameEngine engine;
+    // report as kept by a client from the updates
+    private final List<String> clientReport = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        engine = GameEngine.load(GAME_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private ServerToClient update() {
+        ServerToClient update = engine.getUpdate();
+        assertThat(update.getReportStart()).isLessThanOrEqualTo(clientReport.size());
+        clientReport.subList(update.getReportStart(), clientReport.size()).clear();
+        clientReport.addAll(update.getReportLines());
+        return update;
+    }
+
+    private PossibleAction findAction(boolean gameAction, GameAction.Mode mode) {
+        for (PossibleAction action : engine.getPossibleActions()) {
+            if (action instanceof GameAction) {
+                if (gameAction && ((GameAction) action).getMode() == mode) return action;
+            } else if (!gameAction) {
+                return action;
+            }
+        }
+        throw new AssertionError("No possible action " + (gameAction ? mode : "of the round"));
+    }
+
+    // some actions do not add report lines
+    private void undoUntilReportShrinks() {
+        int reportSize = engine.getReportSize();
+        while (engine.getReportSize() == reportSize) {
+            assertThat(engine.submit(findAction(true, GameAction.Mode.FORCED_UNDO))).isEmpty();
+        }
+        assertThat(engine.getReportSize()).isLessThan(reportSize);
+    }
+
+    @Test
+    public void testUpdateAfterUndo() {
+        update();
+        assertThat(clientReport).isEqualTo(engine.getReport(0));
+
+        undoUntilReportShrinks();
+        ServerToClient update = update();
+        assertThat(update.getReportLines()).isEmpty();
+        assertThat(clientReport).isEqualTo(engine.getReport(0));
+    }
+
+    @Test
+    public void testUpdateAfterUndoAndNewAction() {
+        update();
+
+        // the report shrinks and grows again between two updates
+        undoUntilReportShrinks();
+        int undoneSize = engine.getReportSize();
+        assertThat(engine.submit(findAction(false, null))).isEmpty();
+        ServerToClient update = update();
+        assertThat(update.getReportStart()).isLessThanOrEqualTo(undoneSize);
+        assertThat(clientReport).isEqualTo(engine.getReport(0));
+    }
+
+    private File save(GameLoader game, int count, String name) throws Exception {
+        List<PossibleAction> actions = game.getActions().subList(0, count);
+        GameSaver saver = new GameSaver(game.getRoot().getGameData(), actions);
+        saver.setActionHashes(new ActionHashChain().update(actions));
+        File file = folder.newFile(name);
+        saver.saveGame(file);
+        return file;
+    }
+
+    @Test
+    public void testReloadReadsNewActions() throws Exception {
+        GameLoader game = new GameLoader();
+        assertThat(game.createFromFile(GAME_FILE)).isTrue();
+        int total = game.getActions().size();
+        File started = save(game, 40, "started.rails");
+        File continued = save(game, total, "continued.rails");
+
+        engine.dispose();
+        engine = GameEngine.load(started);
+        GameManager gameManager = engine.getRoot().getGameManager();
+        assertThat(gameManager.executedActions.size()).isEqualTo(40);
+
+        // the executed actions are verified by the hashes, thus not read
+        GameLoader reloader = new GameLoader();
+        assertThat(reloader.reloadGameFromFile(engine.getRoot(), continued,
+                gameManager.actionHashChain.update(gameManager.executedActions.view()))).isTrue();
+        assertThat(reloader.getFirstActionIndex()).isEqualTo(40);
+        assertThat(reloader.getActions()).hasSize(total - 40);
+
+        GameAction reload = new GameAction(engine.getRoot(), GameAction.Mode.RELOAD);
+        reload.setFilepath(continued.getPath());
+        assertThat(engine.submit(reload)).isEmpty();
+        assertThat(gameManager.executedActions.size()).isEqualTo(total);
+    }
+
+    @Test
+    public void testReloadWithoutMatchingHashes() throws Exception {
+        GameLoader game = new GameLoader();
+        assertThat(game.createFromFile(GAME_FILE)).isTrue();
+        File file = folder.newFile("withoutHashes.rails");
+        new GameSaver(game).saveGame(file);
+
+        GameManager gameManager = engine.getRoot().getGameManager();
+        GameLoader reloader = new GameLoader();
+        assertThat(reloader.reloadGameFromFile(engine.getRoot(), file,
+                gameManager.actionHashChain.update(gameManager.executedActions.view()))).isTrue();
+        // all actions are read for the comparison with the executed actions
+        assertThat(reloader.getFirstActionIndex()).isEqualTo(0);
+        assertThat(reloader.getActions()).hasSize(game.getActions().size());
+    }
+
+    @Test
+    public void testSaveUsesConfigOfGame() throws Exception {
+        engine.getRoot().getGameContext().getConfig().put(GameSaver.COMPRESSION_LEVEL, "6");
+        File file = folder.newFile("context.rails");
+        engine.save(file);
+
+        // compressed files start with RAILSZ instead of the serialization header
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertThat(new String(data, 0, 6, StandardCharsets.US_ASCII)).isEqualTo("RAILSZ");
+    }
+
+    // report as kept by a subscriber from the stream of report sets
+    private static class SubscribedReport implements ReportBuffer.Subscriber {
+        private final List<ReportSet> sets = Lists.newArrayList();
+        private int cursor = 0;
+
+        @Override
+        public void append(int index, ReportSet set) {
+            assertThat(index).isLessThanOrEqualTo(sets.size());
+            sets.subList(index, sets.size()).clear();
+            sets.add(set);
+            cursor = index + 1;
+        }
+
+        @Override
+        public void moveCursor(int cursor) {
+            assertThat(cursor).isLessThanOrEqualTo(sets.size());
+            this.cursor = cursor;
+        }
+
+        private List<String> getPast() {
+            List<String> messages = Lists.newArrayList();
+            for (ReportSet set : sets.subList(0, cursor)) {
+                messages.addAll(set.getMessages());
+            }
+            return messages;
+        }
+    }
+
+    @Test
+    public void testReportSubscriberAcrossUndoAndRedo() {
+        SubscribedReport report = new SubscribedReport();
+        engine.subscribeReport(report);
+        assertThat(report.getPast()).isEqualTo(engine.getReport(0));
+        int setCount = report.sets.size();
+
+        // undo keeps the sets as future
+        undoUntilReportShrinks();
+        assertThat(report.getPast()).isEqualTo(engine.getReport(0));
+        assertThat(report.cursor).isLessThan(setCount);
+        int undoneCursor = report.cursor;
+
+        assertThat(engine.submit(findAction(true, GameAction.Mode.REDO))).isEmpty();
+        assertThat(report.getPast()).isEqualTo(engine.getReport(0));
+        assertThat(report.cursor).isGreaterThan(undoneCursor);
+
+        // a new action after undo discards the future
+        undoUntilReportShrinks();
+        assertThat(engine.submit(findAction(false, null))).isEmpty();
+        assertThat(report.getPast()).isEqualTo(engine.getReport(0));
+        assertThat(report.cursor).isEqualTo(report.sets.size());
+
+        // a later subscriber receives the same sets
+        SubscribedReport later = new SubscribedReport();
+        engine.subscribeReport(later);
+        assertThat(later.sets).isEqualTo(report.sets);
+        assertThat(later.cursor).isEqualTo(report.cursor);
+
+        engine.unsubscribeReport(report);
+        undoUntilReportShrinks();
+        assertThat(later.getPast()).isEqualTo(engine.getReport(0));
+        assertThat(report.getPast()).isNotEqualTo(engine.getReport(0));
+    }
+
+}
@@ -0,0 +1,208 @@
+package net.sf.rails.game.host;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.common.ReportBuffer;
+import net.sf.rails.common.ReportSet;
+import net.sf.rails.game.GameEngine;
+
+public class GameActorTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // the scheduled drains of the actor, run by the test
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private GameActor actor;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        actor = new GameActor("test", GameEngine.load(GAME_FILE), tasks::add, 32);
+    }
+
+    @After
+    public void tearDown() {
+        actor.close();
+        runTasks();
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+        assertThat(future.isCompletedExceptionally()).isTrue();
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Future did not fail");
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        List<CompletableFuture<Integer>> queued = Lists.newArrayList();
+        for (int i = 0; i < 32; i++) {
+            queued.add(actor.ask(GameEngine::getReportSize));
+        }
+        CompletableFuture<Integer> rejected = actor.ask(GameEngine::getReportSize);
+        assertThat(failure(rejected)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(actor.getMetrics().getRejected()).isEqualTo(1);
+        assertThat(actor.getQueueDepth()).isEqualTo(32);
+
+        runTasks();
+        for (CompletableFuture<Integer> future : queued) {
+            assertThat(future.isDone()).isTrue();
+        }
+        // accepted again after the mailbox is drained
+        CompletableFuture<Integer> accepted = actor.ask(GameEngine::getReportSize);
+        runTasks();
+        assertThat(accepted.get()).isEqualTo(queued.get(0).get());
+    }
+
+    @Test
+    public void testBatching() {
+        List<Integer> executed = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            int request = i;
+            actor.ask(engine -> executed.add(request));
+        }
+        // the actor is scheduled once, not per request
+        assertThat(tasks).hasSize(1);
+
+        tasks.poll().run();
+        assertThat(executed).hasSize(16);
+        // the rest is scheduled again, other games get their turn in between
+        assertThat(tasks).hasSize(1);
+
+        tasks.poll().run();
+        assertThat(executed).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(executed.get(i)).isEqualTo(i);
+        }
+        assertThat(tasks).isEmpty();
+        assertThat(actor.getMetrics().getProcessed()).isEqualTo(20);
+    }
+
+    @Test
+    public void testFailedRequests() throws Exception {
+        CompletableFuture<Object> exception = actor.ask(engine -> {
+            throw new IllegalStateException("request");
+        });
+        CompletableFuture<Object> error = actor.ask(engine -> {
+            throw new AssertionError("request");
+        });
+        CompletableFuture<Integer> next = actor.ask(GameEngine::getReportSize);
+        runTasks();
+
+        assertThat(failure(exception)).isInstanceOf(IllegalStateException.class);
+        assertThat(failure(error)).isInstanceOf(AssertionError.class);
+        assertThat(next.get()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testFatalError() throws Exception {
+        CompletableFuture<Object> fatal = actor.ask(engine -> {
+            throw new OutOfMemoryError("request");
+        });
+        CompletableFuture<Integer> next = actor.ask(GameEngine::getReportSize);
+        try {
+            tasks.poll().run();
+            fail("Error of the virtual machine is not passed on");
+        } catch (OutOfMemoryError e) {
+            // expected
+        }
+        assertThat(failure(fatal)).isInstanceOf(OutOfMemoryError.class);
+
+        // the remaining requests are scheduled again
+        runTasks();
+        assertThat(next.get()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testHibernation() throws Exception {
+        List<Integer> appended = Lists.newArrayList();
+        ReportBuffer.Subscriber subscriber = new ReportBuffer.Subscriber() {
+            @Override
+            public void append(int index, ReportSet set) {
+                appended.add(index);
+            }
+
+            @Override
+            public void moveCursor(int cursor) {
+            }
+        };
+        actor.subscribeReport(subscriber);
+        CompletableFuture<Integer> reportSize = actor.ask(GameEngine::getReportSize);
+        runTasks();
+        int reportSets = appended.size();
+        assertThat(reportSets).isGreaterThan(0);
+
+        File file = new File(folder.getRoot(), "test.rails");
+        CompletableFuture<Boolean> hibernated = actor.hibernate(file);
+        runTasks();
+        assertThat(hibernated.get()).isTrue();
+        assertThat(actor.isHibernated()).isTrue();
+        assertThat(file).exists();
+        assertThat(actor.isIdle(0)).isFalse();
+
+        // hibernated already
+        CompletableFuture<Boolean> again = actor.hibernate(file);
+        runTasks();
+        assertThat(again.get()).isFalse();
+
+        // the next request loads the game again, the subscriber receives the report again
+        CompletableFuture<Integer> rehydratedSize = actor.ask(GameEngine::getReportSize);
+        runTasks();
+        assertThat(rehydratedSize.get()).isEqualTo(reportSize.get());
+        assertThat(actor.isHibernated()).isFalse();
+        assertThat(actor.getMetrics().getRehydrated()).isEqualTo(1);
+        assertThat(appended).hasSize(2 * reportSets);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CompletableFuture<Integer> pending = actor.ask(GameEngine::getReportSize);
+        CompletableFuture<Void> closed = actor.close();
+        CompletableFuture<Integer> later = actor.ask(GameEngine::getReportSize);
+        runTasks();
+
+        assertThat(pending.get()).isGreaterThan(0);
+        assertThat(closed.isDone()).isTrue();
+        assertThat(failure(later)).isInstanceOf(IllegalStateException.class);
+        assertThat(actor.isIdle(0)).isFalse();
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.sf.rails.game.host;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.sf.rails.common.ConfigManager;
+
+public class GameHostTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    private GameHost host;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        host = new GameHost(1, 32);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        host.shutdown();
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    @Test
+    public void testInvalidIds() {
+        // each would name a file outside the hibernation directory
+        for (String id : new String[] {"../game", "..", "games/1", "games\\1", "/tmp/game", "", null}) {
+            try {
+                host.load(id, GAME_FILE);
+                fail("Game id " + id + " accepted");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertThat(host.countOfGames()).isEqualTo(0);
+    }
+
+    @Test
+    public void testValidId() throws Exception {
+        GameActor actor = host.load("game-1.v2_a", GAME_FILE).get();
+        assertThat(actor.getId()).isEqualTo("game-1.v2_a");
+        assertThat(host.getGameIds()).containsOnly("game-1.v2_a");
+    }
+
+}
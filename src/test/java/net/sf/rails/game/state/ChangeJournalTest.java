@@ -0,0 +1,147 @@
+package net.sf.rails.game.state;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Root root;
+    private ChangeStack changeStack;
+
+    private IntegerState integerState;
+    private BooleanState booleanState;
+    private StringState stringState;
+
+    @Before
+    public void setUp() {
+        root = StateTestUtils.setUpRoot();
+        changeStack = root.getStateManager().getChangeStack();
+        integerState = IntegerState.create(root, "Integer", 10);
+        booleanState = new BooleanState(root, "Boolean");
+        stringState = StringState.create(root, "String", "A");
+        StateTestUtils.close(root);
+    }
+
+    @Test
+    public void testMixedChangeSet() {
+        integerState.set(5);
+        booleanState.set(true);
+        stringState.set("B");
+        integerState.add(3);
+        StateTestUtils.close(root);
+
+        assertThat(StateTestUtils.getPreviousChangeSet(root).getStates())
+                .containsOnly(integerState, booleanState, stringState);
+
+        StateTestUtils.undo(root);
+        assertEquals(10, integerState.value());
+        assertFalse(booleanState.value());
+        assertEquals("A", stringState.value());
+
+        StateTestUtils.redo(root);
+        assertEquals(8, integerState.value());
+        assertTrue(booleanState.value());
+        assertEquals("B", stringState.value());
+    }
+
+    @Test
+    public void testRedoDiscardedByNewChangeSet() {
+        integerState.set(1);
+        stringState.set("B");
+        StateTestUtils.close(root);
+        ChangeSet first = StateTestUtils.getPreviousChangeSet(root);
+
+        integerState.set(2);
+        stringState.set("C");
+        StateTestUtils.closeAndUndo(root);
+
+        // replaces the undone changeSet
+        integerState.set(3);
+        stringState.set("D");
+        StateTestUtils.close(root);
+        assertEquals(changeStack.getCurrentIndex(), changeStack.getMaximumIndex());
+
+        StateTestUtils.undo(root);
+        assertSame(first, StateTestUtils.getPreviousChangeSet(root));
+        assertEquals(1, integerState.value());
+        assertEquals("B", stringState.value());
+
+        StateTestUtils.redo(root);
+        assertEquals(3, integerState.value());
+        assertEquals("D", stringState.value());
+    }
+
+    @Test
+    public void testMemoryWindow() throws IOException {
+        changeStack.setMemoryWindow(2, null);
+        for (int i = 1; i <= 10; i++) {
+            integerState.set(i);
+            stringState.set(String.valueOf(i));
+            booleanState.set(i % 2 == 1);
+            StateTestUtils.close(root);
+        }
+
+        // undo into the spilled part of the journal
+        int index = changeStack.getCurrentIndex();
+        changeStack.undo(index - 7);
+        assertEquals(3, integerState.value());
+        assertEquals("3", stringState.value());
+        assertTrue(booleanState.value());
+
+        changeStack.redo(index - 2);
+        assertEquals(8, integerState.value());
+        assertEquals("8", stringState.value());
+        assertFalse(booleanState.value());
+    }
+
+    @Test
+    public void testDispose() throws IOException {
+        changeStack.setMemoryWindow(2, folder.getRoot());
+        for (int i = 1; i <= 5; i++) {
+            integerState.set(i);
+            StateTestUtils.close(root);
+        }
+        assertEquals(1, folder.getRoot().list().length);
+
+        root.dispose();
+        assertEquals(0, folder.getRoot().list().length);
+
+        // the spilled entries are gone
+        try {
+            changeStack.undo(changeStack.getCurrentIndex() - 4);
+            fail("Undo into a disposed journal file");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCapacityAfterSpill() throws IOException {
+        ChangeJournal journal = new ChangeJournal(root.getStateManager());
+        journal.setFile(ChangeJournalFile.create(folder.getRoot()));
+        for (int i = 0; i < 4000; i++) {
+            journal.addInteger(integerState, i, i + 1);
+        }
+        assertTrue(journal.getCapacity() >= 4000);
+
+        // the arrays shrink after the entries are spilled
+        journal.spill(3990);
+        assertTrue(journal.getCapacity() < 4000);
+        assertEquals(4000, journal.size());
+        assertEquals(3990, journal.getSpilled());
+        assertEquals("Integer", journal.getState(0).getId());
+        assertEquals("Integer", journal.getState(3999).getId());
+        journal.dispose();
+    }
+
+}
@@ -40,4 +40,40 @@ public class ModelTest {
         verify(observer).update(MODEL_TEXT_CHANGE);
     }
 
+    @Test
+    public void testInvalidate() {
+        // a model that caches the text of the embedded model
+        final int[] calculations = {0};
+        Model cached = new Model(root, "Cached") {
+            private String cache;
+            @Override
+            protected void invalidate() {
+                cache = null;
+            }
+            @Override
+            public String toText() {
+                if (cache == null) {
+                    calculations[0]++;
+                    cache = model.toText();
+                }
+                return cache;
+            }
+        };
+        model.addModel(cached);
+        StateTestUtils.close(root);
+
+        assertEquals(MODEL_TEXT_INIT, cached.toText());
+        assertEquals(MODEL_TEXT_INIT, cached.toText());
+        assertEquals(1, calculations[0]);
+
+        model.changeText(MODEL_TEXT_CHANGE);
+        assertEquals(MODEL_TEXT_CHANGE, cached.toText());
+        StateTestUtils.close(root);
+
+        StateTestUtils.undo(root);
+        assertEquals(MODEL_TEXT_INIT, cached.toText());
+        StateTestUtils.redo(root);
+        assertEquals(MODEL_TEXT_CHANGE, cached.toText());
+    }
+
 }
@@ -51,6 +51,14 @@ public class ObservableTest {
     }
     
 
+    @Test
+    public void testObservableId() {
+        Observable another = new ObservableImpl(item, "Another");
+        assertNotEquals(observable.getObservableId(), another.getObservableId());
+        assertSame(observable, root.getObservable(observable.getObservableId()));
+        assertSame(another, root.getObservable(another.getObservableId()));
+    }
+
     @Test
     public void testObservers() {
         // add observer and test if contained
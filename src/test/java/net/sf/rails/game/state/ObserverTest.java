@@ -7,12 +7,16 @@ import net.sf.rails.game.state.BooleanState;
 import net.sf.rails.game.state.Observer;
 import net.sf.rails.game.state.Root;
 
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.Lists;
+
 @RunWith(MockitoJUnitRunner.class)
 public class ObserverTest {
     
@@ -21,6 +25,7 @@ public class ObserverTest {
     private Root root;
     private BooleanState state;
     @Mock private Observer observer;
+    @Mock private AsyncObserver asyncObserver;
 
     @Before
     public void setUp() {
@@ -38,4 +43,47 @@ public class ObserverTest {
         verify(observer).update(state.toText());
     }
 
+    @Test
+    public void testAsyncUpdate() {
+        List<Runnable> tasks = Lists.newArrayList();
+        when(asyncObserver.getExecutor()).thenReturn(tasks::add);
+        state.addObserver(asyncObserver);
+
+        state.set(true);
+        StateTestUtils.close(root);
+        state.set(false);
+        StateTestUtils.close(root);
+        // delivered only by the executor, and only once with the latest text
+        verify(asyncObserver, never()).update(anyString());
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        verify(asyncObserver).update(state.toText());
+        verify(asyncObserver, times(1)).update(anyString());
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void testAsyncUpdateAfterError() {
+        List<Runnable> tasks = Lists.newArrayList();
+        when(asyncObserver.getExecutor()).thenReturn(tasks::add);
+        doThrow(new AssertionError("update")).doNothing().when(asyncObserver).update(anyString());
+        state.addObserver(asyncObserver);
+
+        state.set(true);
+        StateTestUtils.close(root);
+        try {
+            tasks.remove(0).run();
+        } catch (AssertionError e) {
+            // passed on to the executor
+        }
+
+        // later updates are still delivered
+        state.set(false);
+        StateTestUtils.close(root);
+        assertThat(tasks).hasSize(1);
+        tasks.remove(0).run();
+        verify(asyncObserver, times(2)).update(anyString());
+        verify(asyncObserver).update(state.toText());
+    }
+
 }
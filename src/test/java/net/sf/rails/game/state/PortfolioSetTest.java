@@ -88,6 +88,19 @@ public class PortfolioSetTest {
         assertFalse(portfolioA.containsItem(anotherItem));
     }
 
+    @Test
+    public void testItemsCached() {
+        Set<Ownable> items = portfolioA.items();
+        assertSame(items, portfolioA.items());
+        // a change or undo invalidates the cached items
+        item.moveTo(ownerB);
+        assertThat(portfolioA.items()).isEmpty();
+        assertThat(portfolioB.items()).containsOnly(item);
+        StateTestUtils.closeAndUndo(root);
+        assertThat(portfolioA.items()).containsOnly(item);
+        assertThat(portfolioB.items()).isEmpty();
+    }
+
     @Test
     public void testSize() {
         assertEquals(1, portfolioA.size());
@@ -22,6 +22,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -179,6 +180,21 @@ public class StateManagerTest {
         verifyZeroInteractions(o_A2, o_A3, o_C3);
     }
 
+    @Test
+    public void testUpdateListener() {
+        final List<Observable> updated = Lists.newArrayList();
+        sm.setUpdateListener(updated::addAll);
+        sm.updateObservers(ImmutableSet.of(m_A3.getState()));
+        // the state first, then the models
+        assertEquals(m_A3.getState(), updated.get(0));
+        assertThat(updated).containsOnly(m_A3.getState(), m_A3, m_C3, m_D);
+
+        updated.clear();
+        sm.setUpdateListener(null);
+        sm.updateObservers(ImmutableSet.of(m_A3.getState()));
+        assertThat(updated).isEmpty();
+    }
+
     @Test
     public void testGetChangeStack() {
         assertNotNull(sm.getChangeStack());
@@ -0,0 +1,110 @@
+package net.sf.rails.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.rails.common.ConfigManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import rails.game.action.PossibleAction;
+
+public class ActionHashChainTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    private List<PossibleAction> actions;
+    // equal actions, but other objects
+    private List<PossibleAction> copies;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        GameLoader loader = new GameLoader();
+        assertTrue(loader.createFromFile(GAME_FILE));
+        actions = loader.getActions();
+        GameLoader other = new GameLoader();
+        assertTrue(other.createFromFile(GAME_FILE));
+        copies = other.getActions();
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    @Test
+    public void testPrefix() {
+        long[] full = new ActionHashChain().update(actions);
+        assertEquals(actions.size(), full.length);
+
+        long[] prefix = new ActionHashChain().update(actions.subList(0, 10));
+        assertArrayEquals(Arrays.copyOf(full, 10), prefix);
+        // equal actions have equal hashes
+        assertArrayEquals(full, new ActionHashChain().update(copies));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        ActionHashChain chain = new ActionHashChain();
+        chain.update(actions.subList(0, 10));
+        // undo of two actions, then further actions
+        chain.update(actions.subList(0, 8));
+        assertArrayEquals(new ActionHashChain().update(actions), chain.update(actions));
+    }
+
+    @Test
+    public void testChangedAction() {
+        List<PossibleAction> changed = Lists.newArrayList(actions);
+        changed.set(5, actions.get(6));
+        long[] full = new ActionHashChain().update(actions);
+        long[] other = new ActionHashChain().update(changed);
+        assertEquals(full[4], other[4]);
+        // all following hashes differ, as they include the changed action
+        for (int i = 5; i < full.length; i++) {
+            assertNotEquals(full[i], other[i]);
+        }
+    }
+
+    @Test
+    public void testAdopt() {
+        long[] saved = new long[actions.size()];
+        Arrays.fill(saved, 42);
+        ActionHashChain chain = new ActionHashChain();
+        chain.adopt(actions.subList(0, 10), saved);
+
+        // adopted hashes are kept for the same actions, further actions continue the chain
+        long[] updated = chain.update(actions.subList(0, 12));
+        assertEquals(42, updated[9]);
+        assertNotEquals(42, updated[10]);
+
+        // other objects are hashed again
+        assertArrayEquals(new ActionHashChain().update(copies.subList(0, 12)),
+                chain.update(copies.subList(0, 12)));
+    }
+
+    @Test
+    public void testMatches() {
+        long[] chain = {1, 2, 3};
+        assertTrue(ActionHashChain.matches(chain, new long[0], 0));
+        assertTrue(ActionHashChain.matches(chain, new long[] {1, 2, 3, 4}, 3));
+        assertTrue(ActionHashChain.matches(chain, new long[] {9, 2}, 2));
+        assertFalse(ActionHashChain.matches(chain, new long[] {1, 5, 3}, 2));
+        // too short for the count
+        assertFalse(ActionHashChain.matches(chain, new long[] {1, 2}, 3));
+        assertFalse(ActionHashChain.matches(chain, new long[] {1, 2, 3, 4}, 4));
+    }
+
+}
@@ -0,0 +1,198 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import rails.game.action.PossibleAction;
+
+public class ActionJournalTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameLoader game;
+    private List<PossibleAction> actions;
+    private File recoveryFile;
+    private ActionJournal journal;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        game = new GameLoader();
+        assertThat(game.createFromFile(GAME_FILE)).isTrue();
+        actions = game.getActions();
+        assertThat(actions.size()).isGreaterThan(20);
+
+        recoveryFile = new File(folder.getRoot(), GameSaver.AUTOSAVE_FILE);
+        journal = new ActionJournal(game.getRoot().getGameData(), recoveryFile);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private void record(int count) throws IOException {
+        journal.record(ImmutableList.copyOf(actions.subList(0, count)));
+    }
+
+    // loads the recovery file including its journal
+    private List<PossibleAction> recover() {
+        GameSaver.awaitPendingSaves();
+        GameLoader loader = new GameLoader();
+        assertThat(loader.createFromFile(recoveryFile)).isTrue();
+        return loader.getActions();
+    }
+
+    private File journalFile() {
+        return ActionJournal.getJournalFile(recoveryFile);
+    }
+
+    @Test
+    public void testFrame() throws IOException {
+        byte[] payload = {1, 2, 3, 4, 5};
+        ByteBuffer frame = ActionJournal.frame(payload);
+        assertThat(frame.remaining()).isEqualTo(2 * Integer.BYTES + payload.length);
+        assertThat(frame.getInt(0)).isEqualTo(payload.length);
+
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        assertThat(ActionJournal.readFrame(new DataInputStream(new ByteArrayInputStream(bytes))))
+                .isEqualTo(payload);
+
+        // changed payload
+        bytes[bytes.length - 1]++;
+        assertThat(ActionJournal.readFrame(new DataInputStream(new ByteArrayInputStream(bytes)))).isNull();
+
+        // torn frame
+        byte[] torn = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, torn, 0, torn.length);
+        assertThat(ActionJournal.readFrame(new DataInputStream(new ByteArrayInputStream(torn)))).isNull();
+    }
+
+    @Test
+    public void testRecoverAppendedActions() throws IOException {
+        record(10);
+        // the files are written on the save thread
+        GameSaver.awaitPendingSaves();
+        assertThat(recoveryFile).exists();
+        assertThat(journalFile()).isNotNull();
+
+        record(15);
+        record(20);
+        assertThat(recover()).hasSize(20);
+    }
+
+    @Test
+    public void testUndoOverwritesActions() throws IOException {
+        record(10);
+        record(20);
+        // undo of five actions, then an action that is equal but not the same object
+        GameLoader other = new GameLoader();
+        assertThat(other.createFromFile(GAME_FILE)).isTrue();
+        List<PossibleAction> redone = ImmutableList.<PossibleAction>builder()
+                .addAll(actions.subList(0, 15)).add(other.getActions().get(15)).build();
+        journal.record(redone);
+
+        List<PossibleAction> recovered = recover();
+        assertThat(recovered).hasSize(16);
+        assertThat(recovered.get(15).toString()).isEqualTo(actions.get(15).toString());
+    }
+
+    @Test
+    public void testUndoWithoutNewAction() throws IOException {
+        record(10);
+        record(20);
+        record(15);
+        assertThat(recover()).hasSize(15);
+
+        // below the actions of the recovery file
+        record(5);
+        List<PossibleAction> recovered = recover();
+        assertThat(recovered).hasSize(5);
+        assertThat(recovered.get(4).toString()).isEqualTo(actions.get(4).toString());
+
+        // redo
+        record(12);
+        assertThat(recover()).hasSize(12);
+    }
+
+    @Test
+    public void testTornFrame() throws IOException {
+        record(10);
+        record(20);
+        GameSaver.awaitPendingSaves();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        assertThat(recover()).hasSize(19);
+    }
+
+    @Test
+    public void testCorruptedFrame() throws IOException {
+        record(10);
+        record(20);
+        GameSaver.awaitPendingSaves();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xff);
+        }
+        assertThat(recover()).hasSize(19);
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        Config.set(ActionJournal.COMPACT_INTERVAL, "5");
+        record(10);
+        record(16);
+        // exceeds the interval, thus the recovery file is rewritten
+        record(20);
+        GameSaver.awaitPendingSaves();
+
+        // the recovery file is complete without the journal
+        assertThat(journalFile().delete()).isTrue();
+        GameLoader loader = new GameLoader();
+        assertThat(loader.createFromFile(recoveryFile)).isTrue();
+        assertThat(loader.getActions()).hasSize(20);
+    }
+
+    @Test
+    public void testRecoveryFileNames() {
+        String first = ActionJournal.claimRecoveryFileName();
+        String second = ActionJournal.claimRecoveryFileName();
+        assertThat(second).isNotEqualTo(first);
+
+        ActionJournal.releaseRecoveryFileName(first);
+        assertThat(ActionJournal.claimRecoveryFileName()).isEqualTo(first);
+        ActionJournal.releaseRecoveryFileName(first);
+        ActionJournal.releaseRecoveryFileName(second);
+    }
+
+}
@@ -0,0 +1,152 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+
+import rails.game.action.PossibleAction;
+
+public class SaveArchiveTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameLoader game;
+    private List<PossibleAction> actions;
+    private SaveArchive archive;
+    private File archiveDirectory;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        game = new GameLoader();
+        assertThat(game.createFromFile(GAME_FILE)).isTrue();
+        actions = game.getActions();
+        // the earlier save shares its first group of actions with the later one
+        assertThat(actions.size()).isGreaterThan(GameSaver.INDEX_INTERVAL + 8);
+
+        archiveDirectory = folder.newFolder("archive");
+        archive = new SaveArchive(archiveDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private File save(String name, int actionCount, int level) throws IOException {
+        Config.set(GameSaver.COMPRESSION_LEVEL, String.valueOf(level));
+        File file = folder.newFile(name);
+        new GameSaver(game.getRoot().getGameData(), actions.subList(0, actionCount)).saveGame(file);
+        return file;
+    }
+
+    private static List<String> chunkHashes(File manifest) throws IOException {
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        return lines.subList(2, lines.size());
+    }
+
+    private int countChunkFiles() {
+        int count = 0;
+        File[] directories = new File(archiveDirectory, "chunks").listFiles();
+        for (File directory : directories) {
+            count += directory.listFiles().length;
+        }
+        return count;
+    }
+
+    private static byte[] content(File saveFile) throws IOException {
+        try (InputStream in = GameLoader.openSaveFile(saveFile)) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private void checkOverlappingSaves(int level) throws IOException {
+        File earlier = save("earlier.rails", GameSaver.INDEX_INTERVAL + 8, level);
+        File later = save("later.rails", actions.size(), level);
+
+        List<String> earlierHashes = chunkHashes(archive.store(earlier));
+        List<String> laterHashes = chunkHashes(archive.store(later));
+        // header, first group of actions, last group with the index
+        assertThat(earlierHashes).hasSize(3);
+
+        // the first group of actions is stored once
+        assertThat(laterHashes.get(1)).isEqualTo(earlierHashes.get(1));
+        Set<String> distinct = Sets.newHashSet(earlierHashes);
+        distinct.addAll(laterHashes);
+        assertThat(distinct.size()).isLessThan(earlierHashes.size() + laterHashes.size());
+        assertThat(countChunkFiles()).isEqualTo(distinct.size());
+        assertThat(archive.getSaveNames()).containsExactly("earlier.rails", "later.rails");
+
+        // the restored files are the uncompressed save files
+        checkRestore(earlier, GameSaver.INDEX_INTERVAL + 8);
+        checkRestore(later, actions.size());
+    }
+
+    private void checkRestore(File saveFile, int actionCount) throws IOException {
+        File restored = new File(folder.getRoot(), "restored_" + saveFile.getName());
+        archive.restore(saveFile.getName(), restored);
+        assertThat(Files.readAllBytes(restored.toPath())).isEqualTo(content(saveFile));
+
+        GameLoader loader = new GameLoader();
+        assertThat(loader.createFromFile(restored)).as(restored.getName()).isTrue();
+        assertThat(loader.getActions()).hasSize(actionCount);
+    }
+
+    @Test
+    public void testUncompressedSaves() throws IOException {
+        checkOverlappingSaves(0);
+    }
+
+    @Test
+    public void testCompressedSaves() throws IOException {
+        checkOverlappingSaves(6);
+    }
+
+    @Test
+    public void testCorruptedChunk() throws IOException {
+        File saveFile = save("game.rails", actions.size(), 0);
+        String hash = chunkHashes(archive.store(saveFile)).get(1);
+        File chunk = new File(new File(new File(archiveDirectory, "chunks"), hash.substring(0, 2)), hash);
+        // a valid chunk file with other content
+        try (OutputStream out = new DeflaterOutputStream(Files.newOutputStream(chunk.toPath()))) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        try {
+            archive.restore("game.rails", new File(folder.getRoot(), "restored.rails"));
+            fail("Corrupted chunk restored");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
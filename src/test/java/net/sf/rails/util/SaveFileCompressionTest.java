@@ -0,0 +1,133 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+public class SaveFileCompressionTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SaveFileCompressionTest.class);
+
+    private static final File TEST_DATA = new File("src/test/resources/data");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @After
+    public void tearDown() {
+        // removes the compression level and the options of the loaded games
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private static void collectSaveFiles(File directory, List<File> files) {
+        File[] entries = directory.listFiles();
+        if (entries == null) return;
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                collectSaveFiles(entry, files);
+            } else if (entry.getName().endsWith("." + Config.get("save.filename.extension"))) {
+                files.add(entry);
+            }
+        }
+    }
+
+    private File save(GameLoader loader, String name, int level) throws IOException {
+        Config.set(GameSaver.COMPRESSION_LEVEL, String.valueOf(level));
+        File file = folder.newFile(name);
+        new GameSaver(loader).saveGame(file);
+        return file;
+    }
+
+    private void load(File file, GameLoader original) {
+        GameLoader loader = new GameLoader();
+        assertThat(loader.createFromFile(file)).as(file.getName()).isTrue();
+        assertThat(loader.getActions()).as(file.getName()).hasSize(original.getActions().size());
+    }
+
+    @Test
+    public void testCompressionOfTestGames() throws IOException {
+        List<File> saveFiles = Lists.newArrayList();
+        collectSaveFiles(TEST_DATA, saveFiles);
+        assertThat(saveFiles).isNotEmpty();
+
+        long plainSize = 0, compressedSize = 0;
+        for (File saveFile : saveFiles) {
+            GameLoader original = new GameLoader();
+            if (!original.createFromFile(saveFile)) {
+                log.warn("Skipped {}, cannot be loaded", saveFile, original.getException());
+                continue;
+            }
+            File plain = save(original, saveFile.getName() + ".plain", 0);
+            File compressed = save(original, saveFile.getName() + ".compressed", 6);
+            plainSize += plain.length();
+            compressedSize += compressed.length();
+
+            load(plain, original);
+            load(compressed, original);
+        }
+        log.info("Saved test games: {} bytes uncompressed, {} bytes compressed", plainSize, compressedSize);
+
+        // serialized actions contain many repeated descriptors and ids
+        assertThat(compressedSize * 2).isLessThan(plainSize);
+    }
+
+    @Test
+    public void testDefaultIsUncompressed() throws IOException {
+        GameLoader original = new GameLoader();
+        assertThat(original.createFromFile(new File(TEST_DATA, "test/1830_SellFullPresCert.rails"))).isTrue();
+        File file = folder.newFile("default.rails");
+        new GameSaver(original).saveGame(file);
+
+        // a standard serialization stream, readable by older versions
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertThat(data[0]).isEqualTo((byte) 0xac);
+        assertThat(data[1]).isEqualTo((byte) 0xed);
+    }
+
+    @Test
+    public void testLevelReadAtCreation() throws Exception {
+        GameLoader original = new GameLoader();
+        assertThat(original.createFromFile(new File(TEST_DATA, "test/1830_SellFullPresCert.rails"))).isTrue();
+        Config.set(GameSaver.COMPRESSION_LEVEL, "6");
+        GameSaver saver = new GameSaver(original);
+        Config.set(GameSaver.COMPRESSION_LEVEL, "0");
+
+        // the save thread sees the level of the creating thread
+        File file = folder.newFile("background.rails");
+        saver.saveGameInBackground(file).get();
+        byte[] data = Files.readAllBytes(file.toPath());
+        assertThat(new String(data, 0, 6, StandardCharsets.US_ASCII)).isEqualTo("RAILSZ");
+    }
+
+    @Test
+    public void testUncompressedFileIsReadAsIs() throws IOException {
+        File file = folder.newFile("plain.rails");
+        Files.write(file.toPath(), new byte[] {(byte) 0xac, (byte) 0xed, 0, 5});
+        byte[] data = ByteStreams.toByteArray(GameLoader.openSaveFile(file));
+        assertThat(data).isEqualTo(new byte[] {(byte) 0xac, (byte) 0xed, 0, 5});
+    }
+
+}
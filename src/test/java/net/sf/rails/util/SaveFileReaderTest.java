@@ -0,0 +1,141 @@
+package net.sf.rails.util;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import net.sf.rails.common.Config;
+import net.sf.rails.common.ConfigManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+import rails.game.action.PossibleAction;
+
+public class SaveFileReaderTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GameLoader game;
+    private List<PossibleAction> actions;
+    private long[] hashes;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        game = new GameLoader();
+        assertThat(game.createFromFile(GAME_FILE)).isTrue();
+        actions = game.getActions();
+        // at least two index entries
+        assertThat(actions.size()).isGreaterThan(GameSaver.INDEX_INTERVAL + 2);
+
+        hashes = new long[actions.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = i * 31L + 7;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    private File save(String name, int level) throws IOException {
+        Config.set(GameSaver.COMPRESSION_LEVEL, String.valueOf(level));
+        File file = folder.newFile(name);
+        GameSaver saver = new GameSaver(game);
+        saver.setActionHashes(hashes);
+        saver.saveGame(file);
+        return file;
+    }
+
+    private void assertSameAction(PossibleAction action, int index) {
+        assertThat(action.toString()).as("action " + index).isEqualTo(actions.get(index).toString());
+    }
+
+    private void checkReader(File file) throws IOException {
+        // the index as written
+        long[] offsets;
+        try (InputStream in = GameLoader.openSaveFile(file)) {
+            offsets = SaveFileReader.readIndex(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+        }
+        assertThat(offsets).isNotNull();
+        assertThat(offsets.length).isEqualTo(
+                (actions.size() + GameSaver.INDEX_INTERVAL - 1) / GameSaver.INDEX_INTERVAL);
+
+        try (SaveFileReader reader = SaveFileReader.open(file, game)) {
+            assertThat(reader.getActionCount()).isEqualTo(actions.size());
+
+            // single actions at both sides of the reset between the first two groups
+            int boundary = GameSaver.INDEX_INTERVAL;
+            for (int index : new int[] {0, boundary - 1, boundary, boundary + 1, actions.size() - 1}) {
+                assertSameAction(reader.getAction(index), index);
+            }
+
+            // range across the boundary
+            List<PossibleAction> range = reader.getActions(boundary - 2, boundary + 3);
+            assertThat(range).hasSize(5);
+            for (int i = 0; i < range.size(); i++) {
+                assertSameAction(range.get(i), boundary - 2 + i);
+            }
+
+            List<PossibleAction> all = reader.getActions(0, actions.size());
+            assertThat(all).hasSize(actions.size());
+            for (int i = 0; i < all.size(); i++) {
+                assertSameAction(all.get(i), i);
+            }
+            assertThat(reader.getActions(boundary, boundary)).isEmpty();
+
+            assertThat(reader.getActionHashes()).isEqualTo(hashes);
+
+            try {
+                reader.getAction(actions.size());
+                fail("Action behind the last action");
+            } catch (IndexOutOfBoundsException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUncompressedFile() throws IOException {
+        checkReader(save("plain.rails", 0));
+    }
+
+    @Test
+    public void testCompressedFile() throws IOException {
+        checkReader(save("compressed.rails", 6));
+    }
+
+    @Test
+    public void testFileWithoutIndex() throws IOException {
+        // written before the index was added
+        assertThat(SaveFileReader.readIndex(ByteBuffer.wrap(Files.readAllBytes(GAME_FILE.toPath())))).isNull();
+        try {
+            SaveFileReader.open(GAME_FILE, game).close();
+            fail("File without index opened");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
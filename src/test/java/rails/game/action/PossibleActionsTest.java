@@ -0,0 +1,96 @@
+package rails.game.action;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.io.File;
+
+import net.sf.rails.common.ConfigManager;
+import net.sf.rails.game.PublicCompany;
+import net.sf.rails.game.RailsRoot;
+import net.sf.rails.util.GameLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PossibleActionsTest {
+
+    private static final File GAME_FILE = new File("src/test/resources/data/test/1830_SellFullPresCert.rails");
+
+    private RailsRoot root;
+    private PublicCompany company;
+    private PublicCompany otherCompany;
+    private PossibleActions possibleActions;
+
+    @BeforeClass
+    public static void setUpClass() {
+        ConfigManager.initConfiguration(true);
+    }
+
+    @Before
+    public void setUp() {
+        GameLoader loader = new GameLoader();
+        assertThat(loader.createFromFile(GAME_FILE)).isTrue();
+        root = loader.getRoot();
+        company = root.getCompanyManager().getPublicCompany("PRR");
+        otherCompany = root.getCompanyManager().getPublicCompany("NYC");
+        possibleActions = PossibleActions.create();
+    }
+
+    @After
+    public void tearDown() {
+        ConfigManager.getInstance().clearTransientConfig();
+    }
+
+    @Test
+    public void testStartCompanyWithOtherPrice() {
+        possibleActions.add(new BuyCertificate(company, 10, null, 67));
+        possibleActions.add(new StartCompany(company, 67));
+        possibleActions.add(new StartCompany(otherCompany, 67));
+
+        // the price of StartCompany is chosen by the player
+        assertThat(possibleActions.validate(new StartCompany(company, 100))).isTrue();
+        // BuyCertificate has the same key, but its price is offered
+        assertThat(possibleActions.validate(new BuyCertificate(company, 10, null, 67))).isTrue();
+        assertThat(possibleActions.validate(new BuyCertificate(company, 10, null, 100))).isFalse();
+        // not offered for this company
+        assertThat(possibleActions.validate(new BuyCertificate(otherCompany, 10, null, 67))).isFalse();
+    }
+
+    @Test
+    public void testClassWithoutKey() {
+        assertThat(new NullAction(root, NullAction.Mode.PASS).getOptionKey()).isNull();
+        possibleActions.add(new NullAction(root, NullAction.Mode.PASS));
+        possibleActions.add(new NullAction(root, NullAction.Mode.DONE));
+
+        // all offered actions of the class are compared
+        assertThat(possibleActions.validate(new NullAction(root, NullAction.Mode.DONE))).isTrue();
+        assertThat(possibleActions.validate(new NullAction(root, NullAction.Mode.PASS))).isTrue();
+        assertThat(possibleActions.validate(new NullAction(root, NullAction.Mode.SKIP))).isFalse();
+        assertThat(possibleActions.validate(null)).isFalse();
+    }
+
+    @Test
+    public void testRemove() {
+        NullAction pass = new NullAction(root, NullAction.Mode.PASS);
+        StartCompany start = new StartCompany(company, 67);
+        possibleActions.add(pass);
+        possibleActions.addFirst(start);
+        assertThat(possibleActions.getList()).containsExactly(start, pass);
+
+        possibleActions.remove(start);
+        assertThat(possibleActions.getList()).containsExactly(pass);
+        assertThat(possibleActions.validate(new StartCompany(company, 67))).isFalse();
+        assertThat(possibleActions.validate(new NullAction(root, NullAction.Mode.PASS))).isTrue();
+
+        // removing again changes nothing
+        possibleActions.remove(start);
+        assertThat(possibleActions.getList()).containsExactly(pass);
+
+        possibleActions.clear();
+        assertThat(possibleActions.isEmpty()).isTrue();
+        assertThat(possibleActions.validate(new NullAction(root, NullAction.Mode.PASS))).isFalse();
+    }
+
+}